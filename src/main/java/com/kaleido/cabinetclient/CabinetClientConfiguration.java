@@ -4,23 +4,61 @@
 
 package com.kaleido.cabinetclient;
 
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kaleido.cabinetclient.authentication.CabinetJWTExchangeFilterFunction;
 import com.kaleido.cabinetclient.authentication.CabinetJWTRequestInterceptor;
 import com.kaleido.cabinetclient.authentication.CabinetUserCredentials;
+import com.kaleido.cabinetclient.client.AsyncCabinetClient;
 import com.kaleido.cabinetclient.client.CabinetClient;
 import com.kaleido.cabinetclient.client.CabinetClientHTTPException;
+import com.kaleido.cabinetclient.client.CabinetCompressingRequestFactory;
+import com.kaleido.cabinetclient.client.CabinetConditionalCache;
+import com.kaleido.cabinetclient.client.CabinetEntityCache;
+import com.kaleido.cabinetclient.client.CabinetExecutors;
+import com.kaleido.cabinetclient.client.CabinetPlateMapDraftClient;
+import com.kaleido.cabinetclient.client.CabinetRequestCoalescer;
 import com.kaleido.cabinetclient.client.CabinetResponseErrorHandler;
 import com.kaleido.cabinetclient.client.CabinetRestTemplate;
+import com.kaleido.cabinetclient.client.ReactiveCabinetClient;
 import com.kaleido.cabinetclient.domain.*;
+import com.kaleido.cabinetclient.platemap.CabinetPlateMapBulkDecoder;
+import com.kaleido.cabinetclient.platemap.CabinetPlateMapDictionaryCodec;
+import com.kaleido.cabinetclient.platemap.CabinetPlateMapSpill;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.retry.backoff.ExponentialBackOffPolicy;
+import org.springframework.retry.policy.NeverRetryPolicy;
 import org.springframework.retry.policy.SimpleRetryPolicy;
 import org.springframework.retry.support.RetryTemplate;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
 
+import javax.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides the {@code @Beans} needed for the Cabinet client. Applications using this library should include this class
@@ -31,21 +69,99 @@ import java.util.Map;
 @EnableConfigurationProperties(CabinetClientProperties.class)
 public class CabinetClientConfiguration {
 
+    private Logger log = LoggerFactory.getLogger(CabinetClientConfiguration.class);
+
     private CabinetClientProperties cabinetClientProperties;
 
+    /*
+     * Deliberately not exposed as a @Bean; an Executor bean would stop Spring Boot auto-configuring the application's
+     * own task executor.
+     */
+    private ExecutorService cabinetExecutorService;
+
+    private final Map<Class<?>, CabinetEntityCache<?>> entityCaches = new ConcurrentHashMap<>();
+    private final Map<Class<?>, CabinetConditionalCache> conditionalCaches = new ConcurrentHashMap<>();
+    private final Map<Class<?>, CabinetRequestCoalescer> requestCoalescers = new ConcurrentHashMap<>();
+
 
     public CabinetClientConfiguration(CabinetClientProperties cabinetClientProperties) {
         this.cabinetClientProperties = cabinetClientProperties;
+        this.cabinetExecutorService = CabinetExecutors.newExecutor(cabinetClientProperties.isVirtualThreadsEnabled(),
+                cabinetClientProperties.getExecutorThreads());
     }
 
     @Bean (name = "cabinetRestTemplate")
-    CabinetRestTemplate cabinetRestTemplate(CabinetJWTRequestInterceptor cabinetJWTRequestInterceptor) {
-        CabinetRestTemplate cabinetRestTemplate = new CabinetRestTemplate();
+    CabinetRestTemplate cabinetRestTemplate(CabinetJWTRequestInterceptor cabinetJWTRequestInterceptor,
+                                            ClientHttpRequestFactory cabinetClientHttpRequestFactory) {
+        ClientHttpRequestFactory requestFactory = cabinetClientHttpRequestFactory;
+        if (cabinetClientProperties.isRequestCompressionEnabled() || cabinetClientProperties.isResponseCompressionEnabled()) {
+            requestFactory = new CabinetCompressingRequestFactory(cabinetClientHttpRequestFactory,
+                    cabinetClientProperties.isRequestCompressionEnabled(),
+                    cabinetClientProperties.getRequestCompressionThreshold(),
+                    cabinetClientProperties.isResponseCompressionEnabled());
+        }
+        CabinetRestTemplate cabinetRestTemplate = new CabinetRestTemplate(requestFactory);
         cabinetRestTemplate.getInterceptors().add(cabinetJWTRequestInterceptor);
         cabinetRestTemplate.setErrorHandler(new CabinetResponseErrorHandler());
+        if (cabinetClientProperties.getPlateMapSpillThreshold() > 0) {
+            //each RestTemplate has object mappers of its own, so the spill settings don't reach any other mapper
+            for (HttpMessageConverter<?> messageConverter : cabinetRestTemplate.getMessageConverters()) {
+                if (messageConverter instanceof AbstractJackson2HttpMessageConverter) {
+                    ((AbstractJackson2HttpMessageConverter) messageConverter).getObjectMapper().registerModule(plateMapSpillModule());
+                }
+            }
+        }
         return cabinetRestTemplate;
     }
 
+    private Module plateMapSpillModule() {
+        return CabinetPlateMapSpill.module(cabinetClientProperties.getPlateMapSpillThreshold(),
+                cabinetClientProperties.getPlateMapSpillDirectory() == null ? null
+                        : Paths.get(cabinetClientProperties.getPlateMapSpillDirectory()));
+    }
+
+    /**
+     * The transport used by the {@code cabinetRestTemplate}. When {@code connectionPoolEnabled} is true (the default)
+     * requests go through a pooled Apache HttpClient so TCP and TLS connections are reused between calls. Otherwise
+     * a new {@code HttpURLConnection} is opened for each request.
+     * The following CabinetClientProperties can be changed to tune the pool
+     * <p>
+     * maxConnectionsTotal: The max number of open connections across all routes (default: 50)
+     * maxConnectionsPerRoute: The max number of open connections to a single host (default: 20)
+     * connectionIdleTimeout: How long, in milliseconds, a connection can sit idle in the pool before it is evicted (default: 30000L)
+     * connectionKeepAlive: How long, in milliseconds, a connection is kept alive when the server doesn't send a
+     * {@code Keep-Alive} timeout (default: 60000L)
+     **/
+    @Bean (name = "cabinetClientHttpRequestFactory")
+    ClientHttpRequestFactory cabinetClientHttpRequestFactory() {
+        if (!cabinetClientProperties.isConnectionPoolEnabled()) {
+            SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+            //unbuffered requests without a known length are sent chunked, so bodies are only unbuffered for streaming writes
+            requestFactory.setBufferRequestBody(!cabinetClientProperties.isStreamingWritesEnabled());
+            return requestFactory;
+        }
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(cabinetClientProperties.getMaxConnectionsTotal());
+        connectionManager.setDefaultMaxPerRoute(cabinetClientProperties.getMaxConnectionsPerRoute());
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> {
+                    long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return keepAlive > 0 ? keepAlive : cabinetClientProperties.getConnectionKeepAlive();
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(cabinetClientProperties.getConnectionIdleTimeout(), TimeUnit.MILLISECONDS)
+                //compression is negotiated by the cabinetRestTemplate so it is the same for both transports
+                .disableContentCompression()
+                .build();
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setBufferRequestBody(!cabinetClientProperties.isStreamingWritesEnabled());
+        return requestFactory;
+    }
+
     /**
      * Configuration for Cabinet Client Retry template.  When a request returns an exception related to 502 or 503
      * the service can automatically retry up to a predefined amount of times (Default: 3 including original call)
@@ -83,43 +199,165 @@ public class CabinetClientConfiguration {
         return new CabinetJWTRequestInterceptor(cabinetUserCredentials, cabinetClientProperties);
     }
 
+    @Bean(name = "cabinetWebClient")
+    WebClient cabinetWebClient(CabinetUserCredentials cabinetUserCredentials) {
+        WebClient.Builder builder = WebClient.builder()
+                .filter(new CabinetJWTExchangeFilterFunction(cabinetUserCredentials, cabinetClientProperties));
+        if (cabinetClientProperties.getPlateMapSpillThreshold() > 0) {
+            ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(plateMapSpillModule()).build();
+            builder.exchangeStrategies(ExchangeStrategies.builder()
+                    .codecs(codecs -> codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper)))
+                    .build());
+        }
+        return builder.build();
+    }
+
     @Bean
     CabinetClient<Authority> cabinetAuthorityClient(CabinetRestTemplate cabinetRestTemplate, RetryTemplate cabinetRetryTemplate) {
-        return new CabinetClient<>(cabinetClientProperties.getBase() + cabinetClientProperties.getAuthorityEndpoint(),
-                cabinetClientProperties.getBase() +
-                        cabinetClientProperties.getSearchPathComponent() + "/"
-                        + cabinetClientProperties.getAuthorityEndpoint(),
-                cabinetRestTemplate, cabinetRetryTemplate, Authority.class);
+        return cabinetClient(cabinetClientProperties.getAuthorityEndpoint(), cabinetRestTemplate, cabinetRetryTemplate, Authority.class,
+                cabinetClientProperties.getAuthorityCacheTtl());
     }
 
     @Bean
     CabinetClient<PersistentAuditEvent> cabinetPersistentAuditEventClient(CabinetRestTemplate cabinetRestTemplate, RetryTemplate cabinetRetryTemplate) {
-        return new CabinetClient<>(cabinetClientProperties.getBase() + cabinetClientProperties.getPersistentAuditEventEndpoint(),
-                cabinetClientProperties.getBase() +
-                        cabinetClientProperties.getSearchPathComponent() + "/"
-                        + cabinetClientProperties.getPersistentAuditEventEndpoint(),
-                cabinetRestTemplate, cabinetRetryTemplate, PersistentAuditEvent.class);
+        return cabinetClient(cabinetClientProperties.getPersistentAuditEventEndpoint(), cabinetRestTemplate, cabinetRetryTemplate, PersistentAuditEvent.class,
+                cabinetClientProperties.getPersistentAuditEventCacheTtl());
     }
 
 
     @Bean
     CabinetClient<CabinetPlateMap> cabinetPlateMapClient(CabinetRestTemplate cabinetRestTemplate, RetryTemplate cabinetRetryTemplate) {
-        return new CabinetClient<>(cabinetClientProperties.getBase() + cabinetClientProperties.getCabinetPlateMapEndpoint(),
-                cabinetClientProperties.getBase() +
-                        cabinetClientProperties.getSearchPathComponent() + "/"
-                        + cabinetClientProperties.getCabinetPlateMapEndpoint(),
-                cabinetRestTemplate, cabinetRetryTemplate, CabinetPlateMap.class);
+        return cabinetClient(cabinetClientProperties.getCabinetPlateMapEndpoint(), cabinetRestTemplate, cabinetRetryTemplate, CabinetPlateMap.class,
+                cabinetClientProperties.getCabinetPlateMapCacheTtl());
+    }
+
+    @Bean
+    CabinetPlateMapDraftClient cabinetPlateMapDraftClient(CabinetClient<CabinetPlateMap> cabinetPlateMapClient) {
+        return new CabinetPlateMapDraftClient(cabinetPlateMapClient, cabinetClientProperties.getCabinetPlateMapDeltaPathComponent(),
+                cabinetClientProperties.getDraftDeltaMaximumSize());
+    }
+
+    @Bean
+    CabinetPlateMapBulkDecoder cabinetPlateMapBulkDecoder() {
+        return new CabinetPlateMapBulkDecoder(cabinetClientProperties.getPlateMapDecodeParallelism());
+    }
+
+    @Bean
+    CabinetPlateMapDictionaryCodec cabinetPlateMapDictionaryCodec() throws IOException {
+        String dictionaryFile = cabinetClientProperties.getPlateMapDictionaryFile();
+        boolean dictionaryWritesEnabled = dictionaryFile != null && cabinetClientProperties.isPlateMapDictionaryWritesEnabled();
+        if (dictionaryWritesEnabled) {
+            log.warn("Plate map data encoded by the cabinetPlateMapDictionaryCodec uses the preset dictionary {}, only a "
+                    + "codec with the same dictionary can read it. Don't save it to plate maps that Cabinet or other "
+                    + "clients read.", dictionaryFile);
+        }
+        return new CabinetPlateMapDictionaryCodec(cabinetClientProperties.getPlateMapDeflateLevel(),
+                dictionaryFile == null ? null : Files.readAllBytes(Paths.get(dictionaryFile)), dictionaryWritesEnabled);
     }
 
     @Bean
     CabinetClient<User> cabinetUserClient(CabinetRestTemplate cabinetRestTemplate, RetryTemplate cabinetRetryTemplate) {
-        return new CabinetClient<>(cabinetClientProperties.getBase() + cabinetClientProperties.getUserEndpoint(),
+        return cabinetClient(cabinetClientProperties.getUserEndpoint(), cabinetRestTemplate, cabinetRetryTemplate, User.class,
+                cabinetClientProperties.getUserCacheTtl());
+    }
+
+    @Bean
+    AsyncCabinetClient<Authority> asyncCabinetAuthorityClient(CabinetRestTemplate cabinetRestTemplate) {
+        return asyncCabinetClient(cabinetClientProperties.getAuthorityEndpoint(), cabinetRestTemplate, Authority.class,
+                cabinetClientProperties.getAuthorityCacheTtl());
+    }
+
+    @Bean
+    AsyncCabinetClient<PersistentAuditEvent> asyncCabinetPersistentAuditEventClient(CabinetRestTemplate cabinetRestTemplate) {
+        return asyncCabinetClient(cabinetClientProperties.getPersistentAuditEventEndpoint(), cabinetRestTemplate, PersistentAuditEvent.class,
+                cabinetClientProperties.getPersistentAuditEventCacheTtl());
+    }
+
+    @Bean
+    AsyncCabinetClient<CabinetPlateMap> asyncCabinetPlateMapClient(CabinetRestTemplate cabinetRestTemplate) {
+        return asyncCabinetClient(cabinetClientProperties.getCabinetPlateMapEndpoint(), cabinetRestTemplate, CabinetPlateMap.class,
+                cabinetClientProperties.getCabinetPlateMapCacheTtl());
+    }
+
+    @Bean
+    AsyncCabinetClient<User> asyncCabinetUserClient(CabinetRestTemplate cabinetRestTemplate) {
+        return asyncCabinetClient(cabinetClientProperties.getUserEndpoint(), cabinetRestTemplate, User.class,
+                cabinetClientProperties.getUserCacheTtl());
+    }
+
+    @Bean
+    ReactiveCabinetClient<Authority> reactiveCabinetAuthorityClient(CabinetClient<Authority> cabinetAuthorityClient, WebClient cabinetWebClient) {
+        return new ReactiveCabinetClient<>(cabinetAuthorityClient, cabinetWebClient, cabinetClientProperties);
+    }
+
+    @Bean
+    ReactiveCabinetClient<PersistentAuditEvent> reactiveCabinetPersistentAuditEventClient(CabinetClient<PersistentAuditEvent> cabinetPersistentAuditEventClient, WebClient cabinetWebClient) {
+        return new ReactiveCabinetClient<>(cabinetPersistentAuditEventClient, cabinetWebClient, cabinetClientProperties);
+    }
+
+    @Bean
+    ReactiveCabinetClient<CabinetPlateMap> reactiveCabinetPlateMapClient(CabinetClient<CabinetPlateMap> cabinetPlateMapClient, WebClient cabinetWebClient) {
+        return new ReactiveCabinetClient<>(cabinetPlateMapClient, cabinetWebClient, cabinetClientProperties);
+    }
+
+    @Bean
+    ReactiveCabinetClient<User> reactiveCabinetUserClient(CabinetClient<User> cabinetUserClient, WebClient cabinetWebClient) {
+        return new ReactiveCabinetClient<>(cabinetUserClient, cabinetWebClient, cabinetClientProperties);
+    }
+
+    /**
+     * Builds an {@code AsyncCabinetClient} for an entity endpoint. The wrapped {@code CabinetClient} makes a single
+     * attempt per call because the async client schedules its own retries instead of sleeping in a {@code RetryTemplate}
+     */
+    private <T> AsyncCabinetClient<T> asyncCabinetClient(String entityEndpoint, CabinetRestTemplate cabinetRestTemplate,
+                                                         Class<T> entityClass, long cacheTtl) {
+        RetryTemplate singleAttemptTemplate = new RetryTemplate();
+        singleAttemptTemplate.setRetryPolicy(new NeverRetryPolicy());
+        return new AsyncCabinetClient<>(cabinetClient(entityEndpoint, cabinetRestTemplate, singleAttemptTemplate, entityClass, cacheTtl),
+                cabinetExecutorService, cabinetClientProperties);
+    }
+
+    /**
+     * Builds a {@code CabinetClient} for an entity endpoint (e.g. {@code plate-maps}) and applies the client settings
+     * from {@code CabinetClientProperties}. Clients of the same entity type share one near-cache, conditional cache and
+     * request coalescer, so a save through the async client also invalidates what the blocking client has cached.
+     */
+    private <T> CabinetClient<T> cabinetClient(String entityEndpoint, CabinetRestTemplate cabinetRestTemplate,
+                                               RetryTemplate cabinetRetryTemplate, Class<T> entityClass, long cacheTtl) {
+        CabinetClient<T> cabinetClient = new CabinetClient<>(cabinetClientProperties.getBase() + entityEndpoint,
                 cabinetClientProperties.getBase() +
                         cabinetClientProperties.getSearchPathComponent() + "/"
-                        + cabinetClientProperties.getUserEndpoint(),
-                cabinetRestTemplate, cabinetRetryTemplate, User.class);
+                        + entityEndpoint,
+                cabinetRestTemplate, cabinetRetryTemplate, entityClass);
+        cabinetClient.setExecutor(cabinetExecutorService);
+        cabinetClient.setStreamPageSize(cabinetClientProperties.getStreamPageSize());
+        cabinetClient.setParallelism(cabinetClientProperties.getParallelism());
+        cabinetClient.setFindBatchSize(cabinetClientProperties.getFindBatchSize());
+        cabinetClient.setFindBatchWindow(cabinetClientProperties.getFindBatchWindow());
+        cabinetClient.setSaveChunkSize(cabinetClientProperties.getSaveChunkSize());
+        cabinetClient.setStreamingWritesEnabled(cabinetClientProperties.isStreamingWritesEnabled());
+        if (cabinetClientProperties.isEntityCacheEnabled() && cacheTtl > 0) {
+            cabinetClient.setEntityCache(entityCache(entityClass, cacheTtl));
+        }
+        if (cabinetClientProperties.isConditionalRequestsEnabled()) {
+            cabinetClient.setConditionalCache(conditionalCaches.computeIfAbsent(entityClass,
+                    type -> new CabinetConditionalCache(cabinetClientProperties.getConditionalCacheMaximumSize())));
+        }
+        if (cabinetClientProperties.isRequestCoalescingEnabled()) {
+            cabinetClient.setRequestCoalescer(requestCoalescers.computeIfAbsent(entityClass, type -> new CabinetRequestCoalescer()));
+        }
+        return cabinetClient;
     }
 
+    @SuppressWarnings("unchecked")
+    private <T> CabinetEntityCache<T> entityCache(Class<T> entityClass, long cacheTtl) {
+        return (CabinetEntityCache<T>) entityCaches.computeIfAbsent(entityClass,
+                type -> new CabinetEntityCache<>(cabinetClientProperties.getEntityCacheMaximumSize(), cacheTtl));
+    }
 
+    @PreDestroy
+    void shutdownExecutor() {
+        cabinetExecutorService.shutdownNow();
+    }
 
 }
@@ -44,6 +44,123 @@ public class CabinetClientProperties {
     private long maxRetryInterval = 15000L;
     private int maxRequestAttempts = 3;
 
+    /*
+     * The JWT token is renewed in the background before it enters its expiration buffer, up to tokenRenewalJitter
+     * milliseconds early so that many instances don't all renew at once. eagerAuthentication fetches the first token
+     * when the application starts instead of on the first request.
+     */
+    private boolean tokenRenewalEnabled = true;
+    private long tokenRenewalJitter = 60000L;
+    private boolean eagerAuthentication = false;
+
+    /*
+     * Connection pooling for the cabinetRestTemplate. When enabled requests are sent through a pooled Apache HttpClient
+     * that keeps connections alive between calls instead of opening a new HttpURLConnection for every request.
+     */
+    private boolean connectionPoolEnabled = true;
+    private int maxConnectionsTotal = 50;
+    private int maxConnectionsPerRoute = 20;
+    private long connectionIdleTimeout = 30000L;
+    private long connectionKeepAlive = 60000L;
+
+    /*
+     * Background work done by the CabinetClients, such as prefetching the next page of a stream, runs on a shared pool
+     * of executorThreads daemon threads. streamPageSize is the number of entities requested per page when streaming.
+     * parallelism is the maximum number of pages a bulk read requests at the same time.
+     * Setting virtualThreadsEnabled runs that work (including the scheduled retries of the async clients) on a virtual
+     * thread per task instead, when the JDK supports it (21+). parallelism still applies to keep within server limits.
+     */
+    private boolean virtualThreadsEnabled = false;
+    private int executorThreads = 4;
+    private int streamPageSize = 100;
+    private int parallelism = 4;
+
+    /*
+     * An optional near-cache for find(id), one per entity type. A cache holds at most entityCacheMaximumSize entities
+     * and serves each for its type's cache ttl, in milliseconds, after it was fetched. Saves and deletes through the
+     * clients invalidate the entity straight away, changes made elsewhere are seen once the ttl has passed.
+     */
+    private boolean entityCacheEnabled = false;
+    private long entityCacheMaximumSize = 1000L;
+    private long authorityCacheTtl = 60000L;
+    private long persistentAuditEventCacheTtl = 60000L;
+    private long cabinetPlateMapCacheTtl = 60000L;
+    private long userCacheTtl = 60000L;
+
+    /*
+     * When conditionalRequestsEnabled is set the clients keep up to conditionalCacheMaximumSize responses that came with
+     * an ETag or Last-Modified header and revalidate them with If-None-Match/If-Modified-Since, a 304 answer is served
+     * from the kept response.
+     */
+    private boolean conditionalRequestsEnabled = false;
+    private long conditionalCacheMaximumSize = 1000L;
+
+    /*
+     * With requestCoalescingEnabled, identical GETs for an entity type that are made while one is already in flight
+     * wait for it and share its response (and its deserialized entities) instead of each calling Cabinet.
+     */
+    private boolean requestCoalescingEnabled = false;
+
+    /*
+     * findAllByIds asks for at most findBatchSize ids per request. Setting findBatchWindow to a number of milliseconds
+     * merges the find(id) calls made within that window of each other into findAllByIds requests.
+     */
+    private int findBatchSize = 100;
+    private long findBatchWindow = 0L;
+
+    /*
+     * saveAllInChunks sends saveChunkSize entities per request, up to parallelism requests at a time.
+     */
+    private int saveChunkSize = 100;
+
+    /*
+     * With streamingWritesEnabled save and saveAll serialize entities straight onto the connection, sent with chunked
+     * transfer encoding, so large uploads don't need a copy of the whole JSON body in memory. Cabinet, and any proxy in
+     * front of it, has to accept chunked requests for that, so it is off by default.
+     */
+    private boolean streamingWritesEnabled = false;
+
+    /*
+     * responseCompressionEnabled asks Cabinet for gzip responses, which are inflated as they are read. With
+     * requestCompressionEnabled request bodies of at least requestCompressionThreshold bytes, and streamed bodies, are
+     * sent gzip-compressed; Cabinet has to accept compressed requests for that, so it is off by default.
+     */
+    private boolean responseCompressionEnabled = true;
+    private boolean requestCompressionEnabled = false;
+    private int requestCompressionThreshold = 2048;
+
+    /*
+     * The cabinetPlateMapDraftClient sends drafts as a delta of the changed wells to
+     * plate-maps/{id}/{cabinetPlateMapDeltaPathComponent}, remembering the last saved draft of up to
+     * draftDeltaMaximumSize plate maps to diff against.
+     */
+    private String cabinetPlateMapDeltaPathComponent = "delta";
+    private long draftDeltaMaximumSize = 100L;
+
+    /*
+     * Plate map data read by the cabinetRestTemplate or cabinetWebClient that is at least plateMapSpillThreshold
+     * characters long is spilled to a memory-mapped temporary file in plateMapSpillDirectory (the default temporary
+     * directory if not set) instead of being held on the heap. 0 never spills.
+     */
+    private int plateMapSpillThreshold = 0;
+    private String plateMapSpillDirectory;
+
+    /*
+     * The cabinetPlateMapBulkDecoder decodes up to plateMapDecodeParallelism plate maps at once on a pool of its own,
+     * 0 decodes on the common fork/join pool.
+     */
+    private int plateMapDecodeParallelism = 0;
+
+    /*
+     * The cabinetPlateMapDictionaryCodec writes plate map data as plain gzip at plateMapDeflateLevel (1 fastest to 9
+     * smallest, -1 the deflate default), and reads it with the preset dictionary in the plateMapDictionaryFile too.
+     * Only with plateMapDictionaryWritesEnabled does it write with the dictionary, which nothing but a codec with the
+     * same dictionary can read, so it is off by default.
+     */
+    private int plateMapDeflateLevel = -1;
+    private String plateMapDictionaryFile;
+    private boolean plateMapDictionaryWritesEnabled = false;
+
     public String getUsername() {
         return username;
     }
@@ -136,5 +253,293 @@ public class CabinetClientProperties {
         this.maxRequestAttempts = maxRequestAttempts;
     }
 
+    public boolean isConnectionPoolEnabled() {
+        return connectionPoolEnabled;
+    }
+
+    public void setConnectionPoolEnabled(boolean connectionPoolEnabled) {
+        this.connectionPoolEnabled = connectionPoolEnabled;
+    }
+
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public long getConnectionIdleTimeout() {
+        return connectionIdleTimeout;
+    }
+
+    public void setConnectionIdleTimeout(long connectionIdleTimeout) {
+        this.connectionIdleTimeout = connectionIdleTimeout;
+    }
+
+    public long getConnectionKeepAlive() {
+        return connectionKeepAlive;
+    }
+
+    public void setConnectionKeepAlive(long connectionKeepAlive) {
+        this.connectionKeepAlive = connectionKeepAlive;
+    }
+
+    public int getExecutorThreads() {
+        return executorThreads;
+    }
+
+    public void setExecutorThreads(int executorThreads) {
+        this.executorThreads = executorThreads;
+    }
+
+    public int getStreamPageSize() {
+        return streamPageSize;
+    }
+
+    public void setStreamPageSize(int streamPageSize) {
+        this.streamPageSize = streamPageSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public boolean isVirtualThreadsEnabled() {
+        return virtualThreadsEnabled;
+    }
+
+    public void setVirtualThreadsEnabled(boolean virtualThreadsEnabled) {
+        this.virtualThreadsEnabled = virtualThreadsEnabled;
+    }
+
+    public boolean isTokenRenewalEnabled() {
+        return tokenRenewalEnabled;
+    }
+
+    public void setTokenRenewalEnabled(boolean tokenRenewalEnabled) {
+        this.tokenRenewalEnabled = tokenRenewalEnabled;
+    }
+
+    public long getTokenRenewalJitter() {
+        return tokenRenewalJitter;
+    }
+
+    public void setTokenRenewalJitter(long tokenRenewalJitter) {
+        this.tokenRenewalJitter = tokenRenewalJitter;
+    }
+
+    public boolean isEagerAuthentication() {
+        return eagerAuthentication;
+    }
+
+    public void setEagerAuthentication(boolean eagerAuthentication) {
+        this.eagerAuthentication = eagerAuthentication;
+    }
+
+    public boolean isEntityCacheEnabled() {
+        return entityCacheEnabled;
+    }
+
+    public void setEntityCacheEnabled(boolean entityCacheEnabled) {
+        this.entityCacheEnabled = entityCacheEnabled;
+    }
+
+    public long getEntityCacheMaximumSize() {
+        return entityCacheMaximumSize;
+    }
+
+    public void setEntityCacheMaximumSize(long entityCacheMaximumSize) {
+        this.entityCacheMaximumSize = entityCacheMaximumSize;
+    }
+
+    public long getAuthorityCacheTtl() {
+        return authorityCacheTtl;
+    }
+
+    public void setAuthorityCacheTtl(long authorityCacheTtl) {
+        this.authorityCacheTtl = authorityCacheTtl;
+    }
+
+    public long getPersistentAuditEventCacheTtl() {
+        return persistentAuditEventCacheTtl;
+    }
+
+    public void setPersistentAuditEventCacheTtl(long persistentAuditEventCacheTtl) {
+        this.persistentAuditEventCacheTtl = persistentAuditEventCacheTtl;
+    }
+
+    public long getCabinetPlateMapCacheTtl() {
+        return cabinetPlateMapCacheTtl;
+    }
+
+    public void setCabinetPlateMapCacheTtl(long cabinetPlateMapCacheTtl) {
+        this.cabinetPlateMapCacheTtl = cabinetPlateMapCacheTtl;
+    }
+
+    public long getUserCacheTtl() {
+        return userCacheTtl;
+    }
+
+    public void setUserCacheTtl(long userCacheTtl) {
+        this.userCacheTtl = userCacheTtl;
+    }
+
+    public boolean isConditionalRequestsEnabled() {
+        return conditionalRequestsEnabled;
+    }
+
+    public void setConditionalRequestsEnabled(boolean conditionalRequestsEnabled) {
+        this.conditionalRequestsEnabled = conditionalRequestsEnabled;
+    }
+
+    public long getConditionalCacheMaximumSize() {
+        return conditionalCacheMaximumSize;
+    }
+
+    public void setConditionalCacheMaximumSize(long conditionalCacheMaximumSize) {
+        this.conditionalCacheMaximumSize = conditionalCacheMaximumSize;
+    }
+
+    public boolean isRequestCoalescingEnabled() {
+        return requestCoalescingEnabled;
+    }
+
+    public void setRequestCoalescingEnabled(boolean requestCoalescingEnabled) {
+        this.requestCoalescingEnabled = requestCoalescingEnabled;
+    }
+
+    public int getFindBatchSize() {
+        return findBatchSize;
+    }
+
+    public void setFindBatchSize(int findBatchSize) {
+        this.findBatchSize = findBatchSize;
+    }
+
+    public long getFindBatchWindow() {
+        return findBatchWindow;
+    }
+
+    public void setFindBatchWindow(long findBatchWindow) {
+        this.findBatchWindow = findBatchWindow;
+    }
+
+    public int getSaveChunkSize() {
+        return saveChunkSize;
+    }
+
+    public void setSaveChunkSize(int saveChunkSize) {
+        this.saveChunkSize = saveChunkSize;
+    }
+
+    public boolean isStreamingWritesEnabled() {
+        return streamingWritesEnabled;
+    }
+
+    public void setStreamingWritesEnabled(boolean streamingWritesEnabled) {
+        this.streamingWritesEnabled = streamingWritesEnabled;
+    }
+
+    public boolean isResponseCompressionEnabled() {
+        return responseCompressionEnabled;
+    }
+
+    public void setResponseCompressionEnabled(boolean responseCompressionEnabled) {
+        this.responseCompressionEnabled = responseCompressionEnabled;
+    }
+
+    public boolean isRequestCompressionEnabled() {
+        return requestCompressionEnabled;
+    }
+
+    public void setRequestCompressionEnabled(boolean requestCompressionEnabled) {
+        this.requestCompressionEnabled = requestCompressionEnabled;
+    }
+
+    public int getRequestCompressionThreshold() {
+        return requestCompressionThreshold;
+    }
+
+    public void setRequestCompressionThreshold(int requestCompressionThreshold) {
+        this.requestCompressionThreshold = requestCompressionThreshold;
+    }
+
+    public String getCabinetPlateMapDeltaPathComponent() {
+        return cabinetPlateMapDeltaPathComponent;
+    }
+
+    public void setCabinetPlateMapDeltaPathComponent(String cabinetPlateMapDeltaPathComponent) {
+        this.cabinetPlateMapDeltaPathComponent = cabinetPlateMapDeltaPathComponent;
+    }
+
+    public long getDraftDeltaMaximumSize() {
+        return draftDeltaMaximumSize;
+    }
+
+    public void setDraftDeltaMaximumSize(long draftDeltaMaximumSize) {
+        this.draftDeltaMaximumSize = draftDeltaMaximumSize;
+    }
+
+    public int getPlateMapSpillThreshold() {
+        return plateMapSpillThreshold;
+    }
+
+    public void setPlateMapSpillThreshold(int plateMapSpillThreshold) {
+        this.plateMapSpillThreshold = plateMapSpillThreshold;
+    }
+
+    public String getPlateMapSpillDirectory() {
+        return plateMapSpillDirectory;
+    }
+
+    public void setPlateMapSpillDirectory(String plateMapSpillDirectory) {
+        this.plateMapSpillDirectory = plateMapSpillDirectory;
+    }
+
+    public int getPlateMapDecodeParallelism() {
+        return plateMapDecodeParallelism;
+    }
+
+    public void setPlateMapDecodeParallelism(int plateMapDecodeParallelism) {
+        this.plateMapDecodeParallelism = plateMapDecodeParallelism;
+    }
+
+    public int getPlateMapDeflateLevel() {
+        return plateMapDeflateLevel;
+    }
+
+    public void setPlateMapDeflateLevel(int plateMapDeflateLevel) {
+        this.plateMapDeflateLevel = plateMapDeflateLevel;
+    }
+
+    public String getPlateMapDictionaryFile() {
+        return plateMapDictionaryFile;
+    }
+
+    public void setPlateMapDictionaryFile(String plateMapDictionaryFile) {
+        this.plateMapDictionaryFile = plateMapDictionaryFile;
+    }
+
+    public boolean isPlateMapDictionaryWritesEnabled() {
+        return plateMapDictionaryWritesEnabled;
+    }
+
+    public void setPlateMapDictionaryWritesEnabled(boolean plateMapDictionaryWritesEnabled) {
+        this.plateMapDictionaryWritesEnabled = plateMapDictionaryWritesEnabled;
+    }
+
 
 }
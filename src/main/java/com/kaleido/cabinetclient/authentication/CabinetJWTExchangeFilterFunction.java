@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.authentication;
+
+import com.kaleido.cabinetclient.CabinetClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The {@code WebClient} equivalent of {@code CabinetJWTRequestInterceptor}. Injects an {@code Authorization} header into
+ * calls to the Cabinet api (only). If the user is not yet authenticated the (blocking) authentication is done on a
+ * worker thread so the event loop is never blocked.
+ */
+public class CabinetJWTExchangeFilterFunction implements ExchangeFilterFunction {
+
+    private CabinetUserCredentials cabinetUserCredentials;
+    private String cabinetBase;
+
+    private Logger log = LoggerFactory.getLogger(CabinetJWTExchangeFilterFunction.class);
+
+    public CabinetJWTExchangeFilterFunction(CabinetUserCredentials cabinetUserCredentials, CabinetClientProperties cabinetClientProperties) {
+        this.cabinetUserCredentials = cabinetUserCredentials;
+        this.cabinetBase = cabinetClientProperties.getBase();
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest clientRequest, ExchangeFunction exchangeFunction) {
+
+        //if the request is to the Cabinet service we should add the authorization token
+        if (!clientRequest.url().toString().contains(cabinetBase)) {
+            return exchangeFunction.exchange(clientRequest);
+        }
+
+        log.debug("Intercepting call to {}, setting authorization header", clientRequest.url());
+        Mono<String> authorizationHeader = Mono.fromCallable(cabinetUserCredentials::getAuthorizationHeader);
+        if (cabinetUserCredentials.hasTokenExpired()) {
+            authorizationHeader = authorizationHeader.subscribeOn(Schedulers.elastic());
+        }
+
+        return authorizationHeader.flatMap(header -> exchangeFunction.exchange(ClientRequest.from(clientRequest)
+                .header(HttpHeaders.AUTHORIZATION, header)
+                .build()));
+    }
+}
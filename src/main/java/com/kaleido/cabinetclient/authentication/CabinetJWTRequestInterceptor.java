@@ -5,21 +5,17 @@
 package com.kaleido.cabinetclient.authentication;
 
 import com.kaleido.cabinetclient.CabinetClientProperties;
+import com.kaleido.cabinetclient.client.CabinetHeaderInterceptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpRequest;
-import org.springframework.http.client.ClientHttpRequestExecution;
-import org.springframework.http.client.ClientHttpRequestInterceptor;
-import org.springframework.http.client.ClientHttpResponse;
-
-import java.io.IOException;
 
 /**
  * Intercepts calls to the Cabinet api (only) and injects an {@code Authorization} header. It will attempt an authentication
  * if the user is not yet authenticated.
  */
-public class CabinetJWTRequestInterceptor implements ClientHttpRequestInterceptor {
+public class CabinetJWTRequestInterceptor implements CabinetHeaderInterceptor {
 
     private CabinetUserCredentials cabinetUserCredentials;
     private String CabinetBase;
@@ -32,17 +28,14 @@ public class CabinetJWTRequestInterceptor implements ClientHttpRequestIntercepto
     }
 
     @Override
-    public ClientHttpResponse intercept(HttpRequest httpRequest, byte[] bytes, ClientHttpRequestExecution clientHttpRequestExecution) throws IOException {
+    public void addHeaders(HttpRequest httpRequest) {
 
         //if the request is to the Cabinet service we should add the authorization token
         if(httpRequest.getURI().toString().contains(CabinetBase)) {
 
             log.debug("Intercepting call to {}, setting authorization header", httpRequest.getURI().toString());
             //set the token on the header
-            httpRequest.getHeaders().add(HttpHeaders.AUTHORIZATION, "Bearer " + cabinetUserCredentials.getBearerToken());
+            httpRequest.getHeaders().add(HttpHeaders.AUTHORIZATION, cabinetUserCredentials.getAuthorizationHeader());
         }
-
-        //execute the client request
-        return clientHttpRequestExecution.execute(httpRequest, bytes);
     }
 }
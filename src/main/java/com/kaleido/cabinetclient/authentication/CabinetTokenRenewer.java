@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.authentication;
+
+import com.kaleido.cabinetclient.CabinetClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Renews the JWT token in the background so requests don't have to wait on the {@code /authenticate} endpoint. Each
+ * time a token is obtained the next renewal is scheduled a random amount of up to {@code tokenRenewalJitter}
+ * milliseconds before the token enters its {@code EXPIRATION_BUFFER_MINUTES} window, which spreads the renewals of
+ * many instances out. If {@code eagerAuthentication} is set the first token is fetched as soon as the context starts.
+ */
+@Component
+public class CabinetTokenRenewer {
+
+    private CabinetUserCredentials cabinetUserCredentials;
+    private boolean tokenRenewalEnabled;
+    private boolean eagerAuthentication;
+    private long tokenRenewalJitter;
+    private long retryInterval;
+
+    private ScheduledExecutorService scheduler;
+    private final AtomicReference<ScheduledFuture<?>> nextRenewal = new AtomicReference<>();
+
+    private Logger log = LoggerFactory.getLogger(CabinetTokenRenewer.class);
+
+    public CabinetTokenRenewer(CabinetUserCredentials cabinetUserCredentials, CabinetClientProperties cabinetClientProperties) {
+        this.cabinetUserCredentials = cabinetUserCredentials;
+        this.tokenRenewalEnabled = cabinetClientProperties.isTokenRenewalEnabled();
+        this.eagerAuthentication = cabinetClientProperties.isEagerAuthentication();
+        this.tokenRenewalJitter = cabinetClientProperties.getTokenRenewalJitter();
+        this.retryInterval = cabinetClientProperties.getRetryInterval();
+    }
+
+    @PostConstruct
+    void start() {
+        if (!tokenRenewalEnabled && !eagerAuthentication) {
+            return;
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cabinet-token-renewal-");
+        threadFactory.setDaemon(true);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, threadFactory);
+        executor.setRemoveOnCancelPolicy(true);
+        scheduler = executor;
+
+        if (tokenRenewalEnabled) {
+            cabinetUserCredentials.addRefreshListener(this::scheduleRenewal);
+        }
+        if (eagerAuthentication) {
+            log.info("Obtaining Cabinet token at startup");
+            scheduler.execute(this::renew);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Schedules the renewal of a token expiring at {@code expiry}, replacing any renewal already scheduled
+     *
+     * @param expiry the expiry of the current token
+     */
+    void scheduleRenewal(Instant expiry) {
+        if (expiry == null || scheduler == null || scheduler.isShutdown()) {
+            return;
+        }
+        Instant renewAt = expiry.minus(Duration.ofMinutes(CabinetUserCredentials.EXPIRATION_BUFFER_MINUTES))
+                .minusMillis(tokenRenewalJitter > 0 ? ThreadLocalRandom.current().nextLong(tokenRenewalJitter + 1) : 0L);
+        //never renew more often than the retry interval, even if the server hands out very short lived tokens
+        long delay = Math.max(Duration.between(Instant.now(), renewAt).toMillis(), retryInterval);
+        schedule(delay);
+    }
+
+    private void schedule(long delay) {
+        log.debug("Next Cabinet token renewal in {}ms", delay);
+        ScheduledFuture<?> previous = nextRenewal.getAndSet(scheduler.schedule(this::renew, delay, TimeUnit.MILLISECONDS));
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    private void renew() {
+        try {
+            cabinetUserCredentials.renewBearerToken();
+        } catch (RuntimeException e) {
+            log.warn("Could not renew the Cabinet token, trying again in {}ms", retryInterval, e);
+            if (tokenRenewalEnabled) {
+                schedule(retryInterval);
+            }
+        }
+    }
+}
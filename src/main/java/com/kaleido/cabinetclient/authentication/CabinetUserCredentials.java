@@ -5,7 +5,9 @@
 package com.kaleido.cabinetclient.authentication;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.kaleido.cabinetclient.CabinetClientProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,8 +18,12 @@ import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Base64;
-import java.util.Map;
-import java.util.regex.PatternSyntaxException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Holds the user credentials of the user that will attempt to be authenticated with the Cabinet service
@@ -30,12 +36,21 @@ public class CabinetUserCredentials {
     public static final long EXPIRATION_BUFFER_MINUTES = 10L;
     public static final String EXPIRY = "exp";
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     private String username;
     private String password;
 
     private CabinetAuthClient cabinetAuthClient;
-    private String bearerToken = null;
-    private Instant bearerExpiry = null;
+
+    /*
+     * The token and its expiry are replaced together as one immutable snapshot so that the hot path is a single
+     * volatile read. refreshInFlight holds the refresh currently being done by one thread so that concurrent callers
+     * share it rather than all calling the authenticate endpoint at once.
+     */
+    private volatile TokenState tokenState = new TokenState(null, null);
+    private final AtomicReference<CompletableFuture<TokenState>> refreshInFlight = new AtomicReference<>();
+    private final List<Consumer<Instant>> refreshListeners = new CopyOnWriteArrayList<>();
 
     Logger log = LoggerFactory.getLogger(CabinetUserCredentials.class);
 
@@ -62,48 +77,170 @@ public class CabinetUserCredentials {
     }
 
     public void setBearerToken(String bearerToken) {
-        this.bearerToken = bearerToken;
+        this.tokenState = new TokenState(bearerToken, tokenState.expiry);
     }
 
+    /**
+     * Returns the current bearer token, obtaining a new one if there is no token or it is within
+     * {@code EXPIRATION_BUFFER_MINUTES} of expiring. Only one thread refreshes the token at a time. While it does, other
+     * callers carry on with the current token if it has not actually expired yet, otherwise they wait for the refresh.
+     *
+     * @return the bearer token
+     */
     @JsonIgnore
     public String getBearerToken() {
-        if (bearerToken == null || hasTokenExpired()) {
-            UserToken userToken = cabinetAuthClient.getUserToken(this);
-            bearerToken = userToken.getBearer();
-            bearerExpiry = getExpiryFromBearer();
+        return currentTokenState().bearer;
+    }
+
+    /**
+     * The value of the {@code Authorization} header for the current bearer token (i.e. {@code Bearer <token>}). The
+     * value is built once per token so adding it to a request doesn't allocate.
+     *
+     * @return the header value
+     * @see #getBearerToken()
+     */
+    @JsonIgnore
+    public String getAuthorizationHeader() {
+        return currentTokenState().authorizationHeader;
+    }
+
+    private TokenState currentTokenState() {
+        while (true) {
+            TokenState state = tokenState;
+            if (state.bearer != null && !state.isExpired()) {
+                return state;
+            }
+
+            CompletableFuture<TokenState> inFlight = refreshInFlight.get();
+            if (inFlight == null) {
+                CompletableFuture<TokenState> refresh = new CompletableFuture<>();
+                if (refreshInFlight.compareAndSet(null, refresh)) {
+                    return refresh(state, refresh);
+                }
+                continue;
+            }
+
+            if (state.bearer != null && state.isUsable()) {
+                return state;
+            }
+            return join(inFlight);
+        }
+    }
+
+    private TokenState join(CompletableFuture<TokenState> refresh) {
+        try {
+            return refresh.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Obtains a new token even if the current one is still valid. If another thread is already refreshing the token
+     * this waits for that refresh instead.
+     *
+     * @return the new bearer token
+     */
+    public String renewBearerToken() {
+        TokenState state = tokenState;
+        CompletableFuture<TokenState> refresh = new CompletableFuture<>();
+        if (refreshInFlight.compareAndSet(null, refresh)) {
+            return refresh(state, refresh).bearer;
+        }
+        CompletableFuture<TokenState> inFlight = refreshInFlight.get();
+        return inFlight == null ? getBearerToken() : join(inFlight).bearer;
+    }
+
+    /**
+     * Registers a callback that is given the expiry of each new token obtained from Cabinet
+     *
+     * @param listener the callback
+     */
+    public void addRefreshListener(Consumer<Instant> listener) {
+        refreshListeners.add(listener);
+    }
+
+    /**
+     * Obtains a new token unless another thread replaced {@code staleState} while this one was claiming the refresh.
+     */
+    private TokenState refresh(TokenState staleState, CompletableFuture<TokenState> refresh) {
+        try {
+            TokenState state = tokenState;
+            if (state == staleState) {
+                UserToken userToken = cabinetAuthClient.getUserToken(this);
+                String bearer = userToken.getBearer();
+                state = new TokenState(bearer, getExpiryFromBearer(bearer));
+                tokenState = state;
+                for (Consumer<Instant> listener : refreshListeners) {
+                    listener.accept(state.expiry);
+                }
+            }
+            refresh.complete(state);
+            return state;
+        } catch (RuntimeException e) {
+            refresh.completeExceptionally(e);
+            throw e;
+        } finally {
+            refreshInFlight.compareAndSet(refresh, null);
         }
-        return bearerToken;
     }
 
     public Instant getBearerExpiry() {
-        return bearerExpiry;
+        return tokenState.expiry;
     }
 
     public void setBearerExpiry(Instant bearerExpiry) {
-        this.bearerExpiry = bearerExpiry;
+        this.tokenState = new TokenState(tokenState.bearer, bearerExpiry);
     }
 
     /**
-     * Parses a JWT token and returns an expiration date in seconds
+     * Parses a JWT token and returns an expiration date in seconds. The payload segment is decoded and scanned with a
+     * streaming parser for the top level {@code exp} claim, the rest of the payload is skipped.
      *
+     * @param bearerToken the JWT token
      * @return Instant time of token expiration
-     * @throws PatternSyntaxException    if the bearer token is malformed
-     * @throws IndexOutOfBoundsException if the bearer token somehow doesn't have a second segment
-     * @throws IOException               if it cannot parse the decoded String as JSON
+     * @throws RuntimeException if the bearer token is malformed or has no {@code exp} claim
      */
-    private Instant getExpiryFromBearer() {
+    private Instant getExpiryFromBearer(String bearerToken) {
         if (!StringUtils.hasText(bearerToken)) {
             log.error("No Bearer Token has been provieded {}", bearerToken);
             return null;
         }
 
-        try {
-            String b64Payload = bearerToken.split("\\.")[1];
-            Map<String, Object> map = new ObjectMapper().readValue(new String(Base64.getDecoder().decode(b64Payload)), Map.class);
+        int payloadStart = bearerToken.indexOf('.') + 1;
+        int payloadEnd = bearerToken.indexOf('.', payloadStart);
+        if (payloadStart == 0) {
+            log.error("Bearer Token is invalid, it has no payload segment");
+            throw new RuntimeException(new IllegalArgumentException("Bearer Token has no payload segment"));
+        }
+        String b64Payload = bearerToken.substring(payloadStart, payloadEnd < 0 ? bearerToken.length() : payloadEnd);
+
+        //JWTs are base64url encoded, but accept the standard alphabet too
+        Base64.Decoder decoder = b64Payload.indexOf('+') >= 0 || b64Payload.indexOf('/') >= 0 ?
+                Base64.getDecoder() : Base64.getUrlDecoder();
 
-            log.info("Token expires at time: {}", map.get(EXPIRY).toString());
-            return Instant.ofEpochSecond(Long.parseLong(map.get(EXPIRY).toString()));
-        } catch (PatternSyntaxException | IndexOutOfBoundsException | IOException e) {
+        try (JsonParser parser = JSON_FACTORY.createParser(decoder.decode(b64Payload))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Bearer Token payload is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (EXPIRY.equals(field)) {
+                    long expiry = parser.getValueAsLong(-1L);
+                    if (expiry < 0) {
+                        throw new IOException("Bearer Token exp claim is not a number: " + parser.getText());
+                    }
+                    log.info("Token expires at time: {}", expiry);
+                    return Instant.ofEpochSecond(expiry);
+                }
+                parser.skipChildren();
+            }
+            throw new IOException("Bearer Token has no " + EXPIRY + " claim");
+        } catch (IllegalArgumentException | IOException e) {
             log.error("Bearer Token is invalid {}", e);
             throw new RuntimeException(e);
         }
@@ -116,11 +253,41 @@ public class CabinetUserCredentials {
      * @return true if the token is expired or within the buffer window of expiration or if bearerExpiry is null
      */
     public boolean hasTokenExpired() {
-        if (bearerExpiry == null)  {
-            return true;
+        return tokenState.isExpired();
+    }
+
+    /**
+     * An immutable snapshot of the bearer token, its expiry and the values derived from them. Everything a request
+     * needs is computed when the snapshot is created so reading it allocates nothing.
+     */
+    private static final class TokenState {
+        private final String bearer;
+        private final String authorizationHeader;
+        private final Instant expiry;
+        private final long refreshAtMillis;
+        private final long expiresAtMillis;
+
+        private TokenState(String bearer, Instant expiry) {
+            this.bearer = bearer;
+            this.authorizationHeader = bearer == null ? null : "Bearer " + bearer;
+            this.expiry = expiry;
+            this.expiresAtMillis = expiry == null ? Long.MIN_VALUE : expiry.toEpochMilli();
+            this.refreshAtMillis = expiry == null ? Long.MIN_VALUE :
+                    expiry.minus(Duration.ofMinutes(EXPIRATION_BUFFER_MINUTES)).toEpochMilli();
+        }
+
+        /**
+         * @return true if the token is expired or within the buffer window of expiration or if expiry is null
+         */
+        private boolean isExpired() {
+            return System.currentTimeMillis() > refreshAtMillis;
+        }
+
+        /**
+         * @return true if the token has not actually expired yet, even if it is within the buffer window
+         */
+        private boolean isUsable() {
+            return System.currentTimeMillis() < expiresAtMillis;
         }
-        Instant bufferedExpiry = bearerExpiry.minus(Duration.ofMinutes(EXPIRATION_BUFFER_MINUTES));
-        Instant currentTime = Instant.now();
-        return currentTime.isAfter(bufferedExpiry);
     }
 }
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import com.kaleido.cabinetclient.CabinetClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+
+import javax.validation.Valid;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A non-blocking counterpart of {@code CabinetClient}. Each call is run on an {@code Executor} and its result is
+ * returned as a {@code CompletableFuture}. Requests that fail with a 502 or 504 are retried with the same exponential
+ * backoff as the {@code cabinetRetryTemplate}, but the wait between attempts is scheduled rather than slept so no
+ * thread is held while backing off.
+ * <p>
+ * The wrapped {@code CabinetClient} should make a single attempt per call (i.e. be built with a {@code RetryTemplate}
+ * that never retries) as retrying is handled here.
+ *
+ * @param <E> The type of {@code domain} package object of the client
+ */
+public class AsyncCabinetClient<E> {
+
+    private Logger log = LoggerFactory.getLogger(AsyncCabinetClient.class);
+
+    private final CabinetClient<E> cabinetClient;
+    private final Executor executor;
+
+    private final long retryInterval;
+    private final double retryMultiplier;
+    private final long maxRetryInterval;
+    private final int maxRequestAttempts;
+
+    /**
+     * An asynchronous client to the Cabinet service parameterized on type {@code E}.
+     *
+     * @param cabinetClient           the client that makes the requests, it should not retry on its own
+     * @param executor                the executor the requests are run on
+     * @param cabinetClientProperties supplies the retry settings
+     */
+    public AsyncCabinetClient(CabinetClient<E> cabinetClient, Executor executor, CabinetClientProperties cabinetClientProperties) {
+        this.cabinetClient = cabinetClient;
+        this.executor = executor;
+        this.retryInterval = cabinetClientProperties.getRetryInterval();
+        this.retryMultiplier = cabinetClientProperties.getRetryMultiplier();
+        this.maxRetryInterval = cabinetClientProperties.getMaxRetryInterval();
+        this.maxRequestAttempts = cabinetClientProperties.getMaxRequestAttempts();
+    }
+
+    public Class<E> getEntityClass() {
+        return cabinetClient.getEntityClass();
+    }
+
+    /**
+     * Find an entity using it's {@code id}.
+     *
+     * @param entityId the id of the entity
+     * @return A future of the response with the matching entity (if any)
+     */
+    public CompletableFuture<ResponseEntity<E>> find(final Long entityId) {
+        return submit(() -> cabinetClient.find(entityId));
+    }
+
+    /**
+     * Find entities where named fields equal their specified values
+     *
+     * @param fieldValueMap the map of fields to be search and their respective search values
+     * @return A future of the {@code List} of entities that match the search criteria up to {@code DEFAULT_SIZE}
+     */
+    public CompletableFuture<ResponseEntity<List<E>>> findByFieldsEqual(final Map<String, String> fieldValueMap) {
+        return submit(() -> cabinetClient.findByFieldsEqual(fieldValueMap));
+    }
+
+    /**
+     * Find entities where named fields equal their specified values
+     *
+     * @param fieldValueMap the map of fields to be search and their respective search values
+     * @param pageNumber    the page number to start from (pages numbered from 0)
+     * @param pageSize      the maximum number of entities in a page
+     * @return A future of the {@code List} of entities that match the search criteria up to {@code pageSize}
+     */
+    public CompletableFuture<ResponseEntity<List<E>>> findByFieldsEqual(
+            final Map<String, String> fieldValueMap, final int pageNumber, final int pageSize) {
+        return submit(() -> cabinetClient.findByFieldsEqual(fieldValueMap, pageNumber, pageSize));
+    }
+
+    /**
+     * Find entities where named fields compares to their specified values
+     *
+     * @param fieldValOperatorMap the map of fields to be search and their respective search values and operators
+     * @return A future of the {@code List} of entities that match the search criteria up to {@code DEFAULT_SIZE}
+     */
+    public CompletableFuture<ResponseEntity<List<E>>> findByFieldsWithOperators(final Map<String, Map<String, String>> fieldValOperatorMap) {
+        return submit(() -> cabinetClient.findByFieldsWithOperators(fieldValOperatorMap));
+    }
+
+    /**
+     * Find entities where named fields compares to their specified values
+     *
+     * @param fieldValOperatorMap the map of fields to be search and their respective search values and operators
+     * @param pageNumber          the page number to start from (pages numbered from 0)
+     * @param pageSize            the maximum number of entities in a page
+     * @return A future of the {@code List} of entities that match the search criteria up to {@code pageSize}
+     */
+    public CompletableFuture<ResponseEntity<List<E>>> findByFieldsWithOperators(
+            final Map<String, Map<String, String>> fieldValOperatorMap, final int pageNumber, final int pageSize) {
+        return submit(() -> cabinetClient.findByFieldsWithOperators(fieldValOperatorMap, pageNumber, pageSize));
+    }
+
+    public CompletableFuture<ResponseEntity<List<E>>> findAll() {
+        return submit(cabinetClient::findAll);
+    }
+
+    public CompletableFuture<ResponseEntity<List<E>>> findAll(final int pageNumber, final int pageSize) {
+        return submit(() -> cabinetClient.findAll(pageNumber, pageSize));
+    }
+
+    /**
+     * Save an entity. If the entity has an {@code id} an attempt will be made to update it. If it doesn't have an
+     * {@code id} a new entity will be created.
+     *
+     * @param entity the entity to create or update
+     * @return A future of the response with a Body equal to the created or updated entity
+     */
+    public CompletableFuture<ResponseEntity<E>> save(@Valid E entity) {
+        return submit(() -> cabinetClient.save(entity));
+    }
+
+    /**
+     * Save a list of entities. Behavior of the save (create vs update) will be done by Cabinet.
+     *
+     * @param entityList the list of an entity to create or update
+     * @return A future of the response with a Body equal to the created or updated entities
+     */
+    public CompletableFuture<ResponseEntity<List<E>>> saveAll(@Valid List<E> entityList) {
+        return submit(() -> cabinetClient.saveAll(entityList));
+    }
+
+    /**
+     * Deletes the entity with the matching {@code entityId}.
+     *
+     * @param entityId the id of the entity to delete
+     * @return A future that completes once the entity is deleted
+     */
+    public CompletableFuture<Void> delete(final Long entityId) {
+        return submit(() -> {
+            cabinetClient.delete(entityId);
+            return null;
+        });
+    }
+
+    /**
+     * Search the elastic search backed index of Cabinet using a query string.
+     *
+     * @param query the query
+     * @return A future of the matching objects up to {@code DEFAULT_SIZE}
+     */
+    public CompletableFuture<ResponseEntity<List<E>>> search(String query) {
+        return submit(() -> cabinetClient.search(query));
+    }
+
+    /**
+     * Search the elastic search backed index of Cabinet using a query string.
+     *
+     * @param query      the query string
+     * @param pageNumber the page number to start from (pages numbered from 0)
+     * @param pageSize   the maximum number of entities in a page
+     * @return A future of the list of matching entities
+     */
+    public CompletableFuture<ResponseEntity<List<E>>> search(String query, int pageNumber, int pageSize) {
+        return submit(() -> cabinetClient.search(query, pageNumber, pageSize));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(request, 1, Math.min(retryInterval, maxRetryInterval), executor, result);
+        return result;
+    }
+
+    /**
+     * Runs one attempt of {@code request} and, if it fails with a retryable exception, schedules the next attempt
+     * {@code interval} milliseconds later.
+     */
+    private <T> void attempt(Supplier<T> request, int attempt, long interval, Executor attemptExecutor, CompletableFuture<T> result) {
+        CompletableFuture.supplyAsync(request, attemptExecutor).whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (attempt < maxRequestAttempts && CabinetClientHTTPException.isRetryable(cause) && !result.isDone()) {
+                log.debug("Attempt {} failed with {}, retrying in {}ms", attempt, cause.getMessage(), interval);
+                long nextInterval = Math.min((long) (interval * retryMultiplier), maxRetryInterval);
+                attempt(request, attempt + 1, nextInterval,
+                        CompletableFuture.delayedExecutor(interval, TimeUnit.MILLISECONDS, executor), result);
+            } else {
+                result.completeExceptionally(cause);
+            }
+        });
+    }
+}
@@ -6,6 +6,7 @@ package com.kaleido.cabinetclient.client;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.ApplicationContext;
@@ -17,18 +18,26 @@ import org.springframework.retry.support.RetryTemplate;
 import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.DefaultUriBuilderFactory;
-import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.validation.Valid;
-import java.beans.IntrospectionException;
 import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.util.stream.Collectors.partitioningBy;
 
@@ -61,7 +70,31 @@ public class CabinetClient<E> {
     public static final String QUERY = "query";
     public static final int DEFAULT_PAGE = 0;
     public static final int DEFAULT_SIZE = Integer.MAX_VALUE;
+    public static final int DEFAULT_STREAM_PAGE_SIZE = 100;
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int DEFAULT_FIND_BATCH_SIZE = 100;
+    public static final int DEFAULT_SAVE_CHUNK_SIZE = 100;
     private final List<String> fieldsInClass;
+    //reads the Long id of an entity, or null if the entity class has no id property
+    private final MethodHandle idAccessor;
+
+    private Executor executor = Runnable::run;
+    private int streamPageSize = DEFAULT_STREAM_PAGE_SIZE;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private CabinetEntityCache<E> entityCache;
+    private CabinetConditionalCache conditionalCache;
+    private CabinetRequestCoalescer requestCoalescer;
+    private int findBatchSize = DEFAULT_FIND_BATCH_SIZE;
+    private long findBatchWindow;
+    private int saveChunkSize = DEFAULT_SAVE_CHUNK_SIZE;
+    private boolean streamingWritesEnabled;
+    private FindBatcher<E> findBatcher;
+
+    //parsed on first use, racing threads may each parse it but they build equal templates
+    private CabinetUriTemplate endpointTemplate;
+    private CabinetUriTemplate searchEndpointTemplate;
+
+    private final ParameterizedTypeReference<E> entityTypeReference;
 
     //retains the type of E
     private ParameterizedTypeReference<List<E>> parameterizedTypeReference = new ParameterizedTypeReference<List<E>>() {
@@ -101,6 +134,47 @@ public class CabinetClient<E> {
             }
 
         });
+
+        this.idAccessor = idAccessor(entityClass);
+        this.entityTypeReference = ParameterizedTypeReference.forType(entityClass);
+    }
+
+    /**
+     * Resolves the getter of the {@code id} property once so that {@code save} doesn't need to introspect the entity
+     * class on every call.
+     *
+     * @param entityClass the entity class
+     * @return a handle of type {@code (Object)Object} reading the id, or null if the class has no {@code id} property
+     * @throws IllegalArgumentException if the class has an {@code id} that can't be read as a {@code Long}
+     */
+    private static MethodHandle idAccessor(Class<?> entityClass) {
+        Method readMethod = Optional.ofNullable(BeanUtils.getPropertyDescriptor(entityClass, "id"))
+                .map(PropertyDescriptor::getReadMethod)
+                .orElse(null);
+        if (readMethod == null) {
+            if (ReflectionUtils.findField(entityClass, "id") != null) {
+                throw new IllegalArgumentException(entityClass.getName() + " has an id field but no public getId()");
+            }
+            return null;
+        }
+        if (!Long.class.equals(readMethod.getReturnType())) {
+            throw new IllegalArgumentException(entityClass.getName() + ".getId() must return Long but returns "
+                    + readMethod.getReturnType().getName());
+        }
+        try {
+            return MethodHandles.publicLookup().unreflect(readMethod)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(entityClass.getName() + ".getId() is not accessible", e);
+        }
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getSearchEndpoint() {
+        return searchEndpoint;
     }
 
     public String getEntityClassName() {
@@ -111,6 +185,158 @@ public class CabinetClient<E> {
         return entityClass;
     }
 
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor used for background work such as prefetching the next page of a stream. By default work is
+     * run on the calling thread.
+     *
+     * @param executor the executor
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public int getStreamPageSize() {
+        return streamPageSize;
+    }
+
+    /**
+     * Sets the page size used by the {@code stream} methods when one isn't given
+     *
+     * @param streamPageSize the maximum number of entities fetched per request
+     */
+    public void setStreamPageSize(int streamPageSize) {
+        this.streamPageSize = streamPageSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return the near-cache used by {@code find(id)}, or null if finds always go to Cabinet
+     */
+    public CabinetEntityCache<E> getEntityCache() {
+        return entityCache;
+    }
+
+    /**
+     * Sets a near-cache for {@code find(id)}. Entries are invalidated when this client saves or deletes the entity.
+     *
+     * @param entityCache the cache, or null to disable caching
+     */
+    public void setEntityCache(CabinetEntityCache<E> entityCache) {
+        this.entityCache = entityCache;
+    }
+
+    /**
+     * @return the cache used to make {@code find} and search requests conditional, or null if they never are
+     */
+    public CabinetConditionalCache getConditionalCache() {
+        return conditionalCache;
+    }
+
+    /**
+     * Sets a cache of validated responses. {@code find}, {@code findAll}, {@code findByFields...} and {@code search}
+     * then send {@code If-None-Match}/{@code If-Modified-Since} and answer a {@code 304} from the kept response.
+     *
+     * @param conditionalCache the cache, or null to always make unconditional requests
+     */
+    public void setConditionalCache(CabinetConditionalCache conditionalCache) {
+        this.conditionalCache = conditionalCache;
+    }
+
+    /**
+     * @return the coalescer shared by identical {@code GET}s, or null if every call makes its own request
+     */
+    public CabinetRequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * Sets a coalescer so that identical {@code find}, {@code findBy...} and {@code search} calls made while one is in
+     * flight share its response instead of each making a request
+     *
+     * @param requestCoalescer the coalescer, or null to disable coalescing
+     */
+    public void setRequestCoalescer(CabinetRequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
+    }
+
+    public int getFindBatchSize() {
+        return findBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of ids requested in one {@code id.in} query by {@code findAllByIds} and by batched finds
+     *
+     * @param findBatchSize the maximum number of ids per request
+     */
+    public void setFindBatchSize(int findBatchSize) {
+        this.findBatchSize = findBatchSize;
+        updateFindBatcher();
+    }
+
+    public long getFindBatchWindow() {
+        return findBatchWindow;
+    }
+
+    /**
+     * Turns on automatic batching of {@code find(id)}. Calls made within {@code findBatchWindow} milliseconds of the
+     * first one are merged into a single {@code findAllByIds} and each caller receives its own entity. A caller waits up
+     * to the window for its batch to be sent.
+     *
+     * @param findBatchWindow the batching window in milliseconds, or 0 to send every find on its own
+     */
+    public void setFindBatchWindow(long findBatchWindow) {
+        this.findBatchWindow = findBatchWindow;
+        updateFindBatcher();
+    }
+
+    public int getSaveChunkSize() {
+        return saveChunkSize;
+    }
+
+    /**
+     * Sets the number of entities sent per request by {@code saveAllInChunks}
+     *
+     * @param saveChunkSize the maximum number of entities per request
+     */
+    public void setSaveChunkSize(int saveChunkSize) {
+        this.saveChunkSize = saveChunkSize;
+    }
+
+    public boolean isStreamingWritesEnabled() {
+        return streamingWritesEnabled;
+    }
+
+    /**
+     * When enabled {@code save} and {@code saveAll} serialize entities straight onto the connection rather than into a
+     * byte array first, see {@code CabinetRestTemplate.exchangeStreaming}
+     *
+     * @param streamingWritesEnabled whether to stream request bodies
+     */
+    public void setStreamingWritesEnabled(boolean streamingWritesEnabled) {
+        this.streamingWritesEnabled = streamingWritesEnabled;
+    }
+
+    private void updateFindBatcher() {
+        findBatcher = findBatchWindow > 0 ?
+                new FindBatcher<>(this::findByIds, findBatchWindow, findBatchSize) : null;
+    }
+
+    /**
+     * Sets the maximum number of pages the {@code InParallel} methods request at the same time when one isn't given
+     *
+     * @param parallelism the maximum number of concurrent page requests
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     /**
      * Find entities where a named field equals a defined value
      *
@@ -160,8 +386,7 @@ public class CabinetClient<E> {
             checkSearchFields(fieldValueMap.keySet());
 
 
-            return cabinetRestTemplate.exchange(findByFieldsEqualUri(fieldValueMap, pageNumber, pageSize),
-                    HttpMethod.GET, null, parameterizedTypeReference);
+            return getList(findByFieldsEqualUri(fieldValueMap, pageNumber, pageSize));
         });
     }
 
@@ -218,8 +443,7 @@ public class CabinetClient<E> {
         return cabinetRetryTemplate.execute(arg0 -> {
             checkSearchFields(fieldValOperatorMap.keySet());
 
-            return cabinetRestTemplate.exchange(findByFieldsWithOperatorsUri(fieldValOperatorMap, pageNumber, pageSize),
-                    HttpMethod.GET, null, parameterizedTypeReference);
+            return getList(findByFieldsWithOperatorsUri(fieldValOperatorMap, pageNumber, pageSize));
         });
     }
 
@@ -242,7 +466,103 @@ public class CabinetClient<E> {
      * @return A response with the matching entity (if any)
      */
     public ResponseEntity<E> find(final Long entityId) {
-        return cabinetRetryTemplate.execute(arg0 -> cabinetRestTemplate.getForEntity(endpoint + "/" + entityId, entityClass));
+        CabinetEntityCache<E> cache = entityCache;
+        if (cache != null && entityId != null) {
+            return cache.get(entityId, () -> fetch(entityId));
+        }
+        return fetch(entityId);
+    }
+
+    private ResponseEntity<E> fetch(Long entityId) {
+        FindBatcher<E> batcher = findBatcher;
+        if (batcher != null && entityId != null) {
+            return ResponseEntity.ok(batcher.find(entityId));
+        }
+        String uri = endpoint + "/" + entityId;
+        return cabinetRetryTemplate.execute(arg0 -> coalesce(uri, false, () -> conditionalGet(uri,
+                request -> cabinetRestTemplate.exchange(uri, HttpMethod.GET, request, entityClass))));
+    }
+
+    private ResponseEntity<List<E>> getList(URI uri) {
+        String key = uri.toString();
+        return coalesce(key, true, () -> conditionalGet(key,
+                request -> cabinetRestTemplate.exchange(uri, HttpMethod.GET, request, parameterizedTypeReference)));
+    }
+
+    /**
+     * Shares the {@code GET} of {@code uri} with identical calls already in flight, if there is a request coalescer
+     *
+     * @param uri     the URI of the request
+     * @param list    whether the response is a list of entities rather than one, a method resource can return either
+     * @param request makes the request
+     * @return the response
+     */
+    private <T> ResponseEntity<T> coalesce(String uri, boolean list, Supplier<ResponseEntity<T>> request) {
+        CabinetRequestCoalescer coalescer = requestCoalescer;
+        if (coalescer == null) {
+            return request.get();
+        }
+        return coalescer.execute(list ? "List " + uri : uri, request);
+    }
+
+    /**
+     * Makes a {@code GET}, conditional on the validators of the last response if there is a conditional cache
+     *
+     * @param uri      the URI of the request
+     * @param exchange makes the request with the given request entity, which may be null
+     * @return the response
+     */
+    private <T> ResponseEntity<T> conditionalGet(String uri, Function<HttpEntity<?>, ResponseEntity<T>> exchange) {
+        CabinetConditionalCache cache = conditionalCache;
+        if (cache == null) {
+            return exchange.apply(null);
+        }
+        return cache.exchange(uri, exchange);
+    }
+
+    /**
+     * Finds the entities with the given ids using {@code id.in} queries of up to {@code findBatchSize} ids each, rather
+     * than one request per id. Duplicate ids are requested once.
+     *
+     * @param entityIds the ids of the entities
+     * @return A response with the entities found, in the order of {@code entityIds}. Ids that don't match an entity are
+     * left out.
+     */
+    public ResponseEntity<List<E>> findAllByIds(Collection<Long> entityIds) {
+        Map<Long, E> entities = findByIds(entityIds);
+        List<E> ordered = new ArrayList<>(entities.size());
+        for (Long id : new LinkedHashSet<>(entityIds)) {
+            E entity = entities.get(id);
+            if (entity != null) {
+                ordered.add(entity);
+            }
+        }
+        return ResponseEntity.ok(ordered);
+    }
+
+    /**
+     * Finds the entities with the given ids
+     *
+     * @param entityIds the ids of the entities, nulls are ignored
+     * @return the entities found, keyed by id
+     */
+    protected Map<Long, E> findByIds(Collection<Long> entityIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(entityIds));
+        ids.remove(null);
+
+        Map<Long, E> entities = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += findBatchSize) {
+            List<Long> batch = ids.subList(from, Math.min(from + findBatchSize, ids.size()));
+            Map<String, String> operatorMap = new HashMap<>();
+            operatorMap.put("operator", "in");
+            operatorMap.put("value", StringUtils.collectionToCommaDelimitedString(batch));
+
+            List<E> found = findByFieldsWithOperators(Collections.singletonMap("id", operatorMap), 0, batch.size()).getBody();
+            if (found != null) {
+                found.forEach(entity -> entities.put(getEntityId(entity), entity));
+            }
+        }
+        return entities;
     }
 
     /**
@@ -253,7 +573,8 @@ public class CabinetClient<E> {
      * @return A response with the matching entity (if any)
      */
     public ResponseEntity<E> findOneByMethod(final String methodName, final String value) {
-        return cabinetRetryTemplate.execute(arg0 -> cabinetRestTemplate.getForEntity(endpoint + "/" + methodName + "/" + value, entityClass));
+        String uri = endpoint + "/" + methodName + "/" + value;
+        return cabinetRetryTemplate.execute(arg0 -> coalesce(uri, false, () -> cabinetRestTemplate.getForEntity(uri, entityClass)));
     }
 
     /**
@@ -265,8 +586,8 @@ public class CabinetClient<E> {
      */
     public ResponseEntity<List<E>> findAllByMethod(final String methodName, final String value) {
         String uri = endpoint + "/" + methodName + (value != null ? "/" + value : "/");
-        return cabinetRetryTemplate.execute(arg0 -> cabinetRestTemplate.exchange(uri,
-                HttpMethod.GET, null, parameterizedTypeReference));
+        return cabinetRetryTemplate.execute(arg0 -> coalesce(uri, true, () -> cabinetRestTemplate.exchange(uri,
+                HttpMethod.GET, null, parameterizedTypeReference)));
     }
 
     public ResponseEntity<List<E>> findAll() {
@@ -274,8 +595,171 @@ public class CabinetClient<E> {
     }
 
     public ResponseEntity<List<E>> findAll(int pageNumber, int pageSize) {
-        return cabinetRetryTemplate.execute(arg0 -> cabinetRestTemplate.exchange(findByFieldsEqualUri(Collections.EMPTY_MAP, pageNumber, pageSize),
-                HttpMethod.GET, null, parameterizedTypeReference));
+        return cabinetRetryTemplate.execute(arg0 -> getList(findByFieldsEqualUri(Collections.EMPTY_MAP, pageNumber, pageSize)));
+    }
+
+    /**
+     * Lazily streams all entities, fetching them a page at a time. The next page is prefetched while the current one
+     * is consumed. The stream should be closed if it is not fully consumed.
+     *
+     * @return a {@code Stream} of all entities
+     */
+    public Stream<E> streamAll() {
+        return streamAll(streamPageSize);
+    }
+
+    /**
+     * Lazily streams all entities, fetching them a page at a time.
+     *
+     * @param pageSize the maximum number of entities fetched per request
+     * @return a {@code Stream} of all entities
+     */
+    public Stream<E> streamAll(int pageSize) {
+        return stream(page -> findAll(page, pageSize), pageSize);
+    }
+
+    /**
+     * Lazily streams entities where named fields equal their specified values, fetching them a page at a time.
+     *
+     * @param fieldValueMap the map of fields to be search and their respective search values
+     * @return a {@code Stream} of the entities that match the search criteria
+     */
+    public Stream<E> streamByFieldsEqual(final Map<String, String> fieldValueMap) {
+        return streamByFieldsEqual(fieldValueMap, streamPageSize);
+    }
+
+    /**
+     * Lazily streams entities where named fields equal their specified values, fetching them a page at a time.
+     *
+     * @param fieldValueMap the map of fields to be search and their respective search values
+     * @param pageSize      the maximum number of entities fetched per request
+     * @return a {@code Stream} of the entities that match the search criteria
+     */
+    public Stream<E> streamByFieldsEqual(final Map<String, String> fieldValueMap, int pageSize) {
+        return stream(page -> findByFieldsEqual(fieldValueMap, page, pageSize), pageSize);
+    }
+
+    /**
+     * Lazily streams entities where named fields compare to their specified values, fetching them a page at a time.
+     *
+     * @param fieldValOperatorMap the map of fields to be search and their respective search values and operators
+     * @return a {@code Stream} of the entities that match the search criteria
+     */
+    public Stream<E> streamByFieldsWithOperators(final Map<String, Map<String, String>> fieldValOperatorMap) {
+        return streamByFieldsWithOperators(fieldValOperatorMap, streamPageSize);
+    }
+
+    /**
+     * Lazily streams entities where named fields compare to their specified values, fetching them a page at a time.
+     *
+     * @param fieldValOperatorMap the map of fields to be search and their respective search values and operators
+     * @param pageSize            the maximum number of entities fetched per request
+     * @return a {@code Stream} of the entities that match the search criteria
+     */
+    public Stream<E> streamByFieldsWithOperators(final Map<String, Map<String, String>> fieldValOperatorMap, int pageSize) {
+        return stream(page -> findByFieldsWithOperators(fieldValOperatorMap, page, pageSize), pageSize);
+    }
+
+    /**
+     * Lazily streams the results of a search of the elastic search backed index, fetching them a page at a time.
+     *
+     * @param query the query string
+     * @return a {@code Stream} of the matching entities
+     */
+    public Stream<E> streamSearch(String query) {
+        return streamSearch(query, streamPageSize);
+    }
+
+    /**
+     * Lazily streams the results of a search of the elastic search backed index, fetching them a page at a time.
+     *
+     * @param query    the query string
+     * @param pageSize the maximum number of entities fetched per request
+     * @return a {@code Stream} of the matching entities
+     */
+    public Stream<E> streamSearch(String query, int pageSize) {
+        return stream(page -> search(query, page, pageSize), pageSize);
+    }
+
+    /**
+     * Finds all entities by requesting their pages concurrently. The number of pages is read from the paging headers of
+     * the first page and the remaining pages are fetched on the client's executor. Entities are returned in page order.
+     *
+     * @return all entities
+     */
+    public List<E> findAllInParallel() {
+        return findAllInParallel(streamPageSize, parallelism);
+    }
+
+    /**
+     * Finds all entities by requesting their pages concurrently.
+     *
+     * @param pageSize    the maximum number of entities fetched per request
+     * @param parallelism the maximum number of pages requested at the same time
+     * @return all entities
+     */
+    public List<E> findAllInParallel(int pageSize, int parallelism) {
+        return new ParallelPageReader<>(page -> findAll(page, pageSize), pageSize, parallelism, executor).readOrdered();
+    }
+
+    /**
+     * Streams all entities by requesting their pages concurrently. Each page is streamed as soon as it arrives, so
+     * pages may be out of order. Closing the stream stops further pages being requested.
+     *
+     * @return an unordered {@code Stream} of all entities
+     */
+    public Stream<E> streamAllInParallel() {
+        return streamAllInParallel(streamPageSize, parallelism);
+    }
+
+    /**
+     * Streams all entities by requesting their pages concurrently.
+     *
+     * @param pageSize    the maximum number of entities fetched per request
+     * @param parallelism the maximum number of pages requested at the same time
+     * @return an unordered {@code Stream} of all entities
+     */
+    public Stream<E> streamAllInParallel(int pageSize, int parallelism) {
+        return new ParallelPageReader<>(page -> findAll(page, pageSize), pageSize, parallelism, executor).readUnordered();
+    }
+
+    /**
+     * Searches the elastic search backed index by requesting the pages of results concurrently. Entities are returned
+     * in page order.
+     *
+     * @param query the query string
+     * @return all matching entities
+     */
+    public List<E> searchInParallel(String query) {
+        return searchInParallel(query, streamPageSize, parallelism);
+    }
+
+    /**
+     * Searches the elastic search backed index by requesting the pages of results concurrently.
+     *
+     * @param query       the query string
+     * @param pageSize    the maximum number of entities fetched per request
+     * @param parallelism the maximum number of pages requested at the same time
+     * @return all matching entities
+     */
+    public List<E> searchInParallel(String query, int pageSize, int parallelism) {
+        return new ParallelPageReader<>(page -> search(query, page, pageSize), pageSize, parallelism, executor).readOrdered();
+    }
+
+    /**
+     * Builds a lazy {@code Stream} over the pages returned by {@code pageRequest}, starting from page 0.
+     *
+     * @param pageRequest fetches a page of entities given its number
+     * @param pageSize    the maximum number of entities in a page
+     * @return a {@code Stream} which prefetches the next page on the client's executor
+     */
+    protected Stream<E> stream(IntFunction<ResponseEntity<List<E>>> pageRequest, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        PagedIterator<E> iterator = new PagedIterator<>(pageRequest, DEFAULT_PAGE, pageSize, executor);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
     }
 
     /**
@@ -287,10 +771,15 @@ public class CabinetClient<E> {
      * set.
      */
     public ResponseEntity<E> save(@Valid E entity) {
-        return cabinetRetryTemplate.execute(arg0 -> {
-            //check if the id has already been set
-            try {
-                Long id = (Long) new PropertyDescriptor("id", entityClass).getReadMethod().invoke(entity);
+        //check if the id has already been set
+        Long id = getEntityId(entity);
+        try {
+            return cabinetRetryTemplate.execute(arg0 -> {
+                if (streamingWritesEnabled) {
+                    //no id, POST it, got an id, PUT it
+                    return cabinetRestTemplate.exchangeStreaming(endpoint, id == null ? HttpMethod.POST : HttpMethod.PUT,
+                            entity, entityTypeReference);
+                }
                 if (id == null) {
                     //no id, POST it
                     return cabinetRestTemplate.postForEntity(endpoint, entity, entityClass);
@@ -299,11 +788,68 @@ public class CabinetClient<E> {
                     HttpEntity<E> httpEntity = new HttpEntity<>(entity);
                     return cabinetRestTemplate.exchange(endpoint, HttpMethod.PUT, httpEntity, entityClass);
                 }
-            } catch (IntrospectionException | ReflectiveOperationException e) {
-                log.error("Error accessing ID of entity {}", entity);
-                throw new RuntimeException(e);
-            }
-        });
+            });
+        } finally {
+            //even a failed update may have been applied
+            invalidateCached(id);
+        }
+    }
+
+    /**
+     * Updates part of a saved entity by sending {@code body} to a resource below it (e.g. {@code plate-maps/1/delta}),
+     * retried like {@code save}
+     *
+     * @param entityId the id of the entity
+     * @param path     the path below the entity's URI
+     * @param body     the change
+     * @return A response with a Body equal to the updated entity
+     */
+    ResponseEntity<E> update(Long entityId, String path, Object body) {
+        String uri = endpoint + "/" + entityId + "/" + path;
+        try {
+            return cabinetRetryTemplate.execute(arg0 -> streamingWritesEnabled
+                    ? cabinetRestTemplate.exchangeStreaming(uri, HttpMethod.PUT, body, entityTypeReference)
+                    : cabinetRestTemplate.exchange(uri, HttpMethod.PUT, new HttpEntity<>(body), entityClass));
+        } finally {
+            invalidateCached(entityId);
+        }
+    }
+
+    /**
+     * Removes an entity from the {@code find(id)} cache and the conditional cache, if there are any
+     *
+     * @param entityId the id of the entity
+     */
+    protected void invalidateCached(Long entityId) {
+        CabinetEntityCache<E> cache = entityCache;
+        if (cache != null) {
+            cache.invalidate(entityId);
+        }
+        CabinetConditionalCache responses = conditionalCache;
+        if (responses != null && entityId != null) {
+            responses.invalidate(endpoint + "/" + entityId);
+        }
+    }
+
+    /**
+     * Reads the {@code id} of an entity
+     *
+     * @param entity the entity
+     * @return the {@code id}, or null if the entity has not been saved yet
+     * @throws IllegalStateException if the entity class has no {@code id} property
+     */
+    protected Long getEntityId(E entity) {
+        if (idAccessor == null) {
+            throw new IllegalStateException(entityClass.getName() + " has no id property");
+        }
+        try {
+            return (Long) (Object) idAccessor.invokeExact((Object) entity);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            log.error("Error accessing ID of entity {}", entity);
+            throw new RuntimeException(e);
+        }
     }
 
     /**
@@ -314,13 +860,92 @@ public class CabinetClient<E> {
      * set.
      */
     public ResponseEntity<List<E>> saveAll(@Valid List<E> entityList) {
-        return cabinetRetryTemplate.execute(arg0 -> {
-                    HttpEntity<Object> requestEntity = new HttpEntity<Object>(entityList);
-                    return cabinetRestTemplate
-                            .exchange(endpoint + "/save-all", HttpMethod.POST, requestEntity, new ParameterizedTypeReference<List<E>>() {
-                            });
+        try {
+            return cabinetRetryTemplate.execute(arg0 -> {
+                        if (streamingWritesEnabled) {
+                            return cabinetRestTemplate.exchangeStreaming(endpoint + "/save-all", HttpMethod.POST,
+                                    entityList, parameterizedTypeReference);
+                        }
+                        HttpEntity<Object> requestEntity = new HttpEntity<Object>(entityList);
+                        return cabinetRestTemplate
+                                .exchange(endpoint + "/save-all", HttpMethod.POST, requestEntity, parameterizedTypeReference);
+                    }
+            );
+        } finally {
+            invalidateCached(entityList);
+        }
+    }
+
+    /**
+     * Removes saved entities from the {@code find(id)} cache and the conditional cache, if there are any
+     *
+     * @param entityList the entities, those without an {@code id} are skipped
+     */
+    void invalidateCached(List<E> entityList) {
+        if ((entityCache != null || conditionalCache != null) && idAccessor != null) {
+            entityList.forEach(entity -> invalidateCached(getEntityId(entity)));
+        }
+    }
+
+    /**
+     * Saves a list of entities in chunks of {@code saveChunkSize}, sending up to {@code parallelism} chunks at the same
+     * time on the client's executor. Each chunk is a separate {@code saveAll} with its own retries, so a failure only
+     * retries and fails that chunk and the other chunks are still saved.
+     *
+     * @param entityList the entities to create or update
+     * @return the outcome for each entity, in the order of {@code entityList}
+     */
+    public CabinetSaveReport<E> saveAllInChunks(@Valid List<E> entityList) {
+        return saveAllInChunks(entityList, saveChunkSize, parallelism);
+    }
+
+    /**
+     * Saves a list of entities in chunks.
+     *
+     * @param entityList  the entities to create or update
+     * @param chunkSize   the maximum number of entities sent per request
+     * @param parallelism the maximum number of chunks sent at the same time
+     * @return the outcome for each entity, in the order of {@code entityList}
+     */
+    public CabinetSaveReport<E> saveAllInChunks(@Valid List<E> entityList, int chunkSize, int parallelism) {
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("chunkSize and parallelism must be at least 1");
+        }
+        int chunks = (entityList.size() + chunkSize - 1) / chunkSize;
+        List<CabinetSaveReport.Outcome<E>> outcomes = new ArrayList<>(Collections.nCopies(entityList.size(), null));
+
+        AtomicInteger nextChunk = new AtomicInteger();
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(parallelism, chunks)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = CompletableFuture.runAsync(() -> {
+                int chunk;
+                while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+                    int from = chunk * chunkSize;
+                    int to = Math.min(from + chunkSize, entityList.size());
+                    saveChunk(entityList, from, to, outcomes);
                 }
-        );
+            }, executor);
+        }
+        CompletableFuture.allOf(workers).join();
+
+        return new CabinetSaveReport<>(outcomes);
+    }
+
+    private void saveChunk(List<E> entityList, int from, int to, List<CabinetSaveReport.Outcome<E>> outcomes) {
+        List<E> chunk = entityList.subList(from, to);
+        try {
+            List<E> saved = saveAll(new ArrayList<>(chunk)).getBody();
+            //Cabinet answers with the saved entities in request order, if it doesn't they can't be matched up
+            boolean matched = saved != null && saved.size() == chunk.size();
+            for (int i = from; i < to; i++) {
+                outcomes.set(i, new CabinetSaveReport.Outcome<>(i, entityList.get(i), matched ? saved.get(i - from) : null, null));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not save entities {} to {} of {}", from, to - 1, entityList.size(), e);
+            for (int i = from; i < to; i++) {
+                outcomes.set(i, new CabinetSaveReport.Outcome<>(i, entityList.get(i), null, e));
+            }
+        }
     }
 
     /**
@@ -329,10 +954,14 @@ public class CabinetClient<E> {
      * @param entityId the id of the entity to delete
      */
     public void delete(final Long entityId) {
-        cabinetRetryTemplate.execute(arg0 -> {
-            cabinetRestTemplate.delete(endpoint + "/{id}", entityId);
-            return null;
-        });
+        try {
+            cabinetRetryTemplate.execute(arg0 -> {
+                cabinetRestTemplate.delete(endpoint + "/{id}", entityId);
+                return null;
+            });
+        } finally {
+            invalidateCached(entityId);
+        }
 
     }
 
@@ -433,7 +1062,7 @@ public class CabinetClient<E> {
     public ResponseEntity<List<E>> search(String query, int pageNumber, int pageSize) {
         return cabinetRetryTemplate.execute(arg0 -> {
             URI searchUri = searchUri(query, pageNumber, pageSize);
-            return cabinetRestTemplate.exchange(searchUri, HttpMethod.GET, null, parameterizedTypeReference);
+            return getList(searchUri);
         });
 
     }
@@ -456,20 +1085,12 @@ public class CabinetClient<E> {
      * @return the URI that can be called to execute the search
      */
     protected URI findByFieldsEqualUri(Map<String, String> fieldValMap, int pageNumber, int pageSize) {
+        CabinetUriTemplate.Builder builder = endpointTemplate().builder();
 
-        DefaultUriBuilderFactory factory = new DefaultUriBuilderFactory();
-        factory.setEncodingMode(DefaultUriBuilderFactory.EncodingMode.VALUES_ONLY);
-
-        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(endpoint);
-
-        //construct parts of the template to be expanded by the factory
-        fieldValMap.forEach((key, value) -> builder.queryParam(key + ".equals", "{" + key + "}"));
+        fieldValMap.forEach((key, value) -> builder.criteria(key, "equals", value));
 
         //add the page number and page size parameters to the query
-        builder.queryParam(PAGE, pageNumber).queryParam(SIZE, pageSize);
-
-        String uriTemplate = builder.build().toUriString();
-        return factory.uriString(uriTemplate).build(fieldValMap);
+        return builder.queryParam(PAGE, pageNumber).queryParam(SIZE, pageSize).build();
     }
 
     /**
@@ -507,14 +1128,12 @@ public class CabinetClient<E> {
      * @return the URI that can be called to execute the search
      */
     protected URI findByFieldsWithOperatorsUri(Map<String, Map<String, String>> fieldValOperatorMap, int pageNumber, int pageSize) {
-        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(endpoint);
+        CabinetUriTemplate.Builder builder = endpointTemplate().builder();
 
-        fieldValOperatorMap.forEach((key, value) -> builder.queryParam(key + "." + value.get("operator"), value.get("value")));
+        fieldValOperatorMap.forEach((key, value) -> builder.criteria(key, value.get("operator"), value.get("value")));
 
         //add the page number and page size parameters to the query
-        builder.queryParam(PAGE, pageNumber).queryParam(SIZE, pageSize);
-
-        return builder.build().toUri();
+        return builder.queryParam(PAGE, pageNumber).queryParam(SIZE, pageSize).build();
     }
 
     /**
@@ -526,10 +1145,26 @@ public class CabinetClient<E> {
      * @return the URI representing the request
      */
     protected URI searchUri(String query, int pageNumber, int pageSize) {
-        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(searchEndpoint);
+        return searchEndpointTemplate().builder().queryParam(QUERY, query)
+                .queryParam(PAGE, pageNumber).queryParam(SIZE, pageSize).build();
+    }
 
-        return builder.queryParam(QUERY, query)
-                .queryParam(PAGE, pageNumber).queryParam(SIZE, pageSize).build().toUri();
+    private CabinetUriTemplate endpointTemplate() {
+        CabinetUriTemplate template = endpointTemplate;
+        if (template == null) {
+            template = new CabinetUriTemplate(endpoint);
+            endpointTemplate = template;
+        }
+        return template;
+    }
+
+    private CabinetUriTemplate searchEndpointTemplate() {
+        CabinetUriTemplate template = searchEndpointTemplate;
+        if (template == null) {
+            template = new CabinetUriTemplate(searchEndpoint);
+            searchEndpointTemplate = template;
+        }
+        return template;
     }
 
     public CabinetClient getClient(Class entityClass) throws ClassCastException {
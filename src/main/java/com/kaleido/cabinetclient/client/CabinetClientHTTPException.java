@@ -21,6 +21,18 @@ public class CabinetClientHTTPException extends HttpServerErrorException {
         super(statusCode, statusText);
     }
 
+    /**
+     * Whether a failed request should be tried again. These are the same exceptions the {@code cabinetRetryTemplate}
+     * retries on.
+     *
+     * @param throwable the exception a request failed with
+     * @return true for a 502 or 504 response
+     */
+    public static boolean isRetryable(Throwable throwable) {
+        return throwable instanceof CabinetClientGatewayTimeoutException
+                || throwable instanceof CabinetClientBadGatewayException;
+    }
+
     public static class CabinetClientGatewayTimeoutException extends CabinetClientHTTPException {
         CabinetClientGatewayTimeoutException(HttpStatus statusCode) {
             super(statusCode);
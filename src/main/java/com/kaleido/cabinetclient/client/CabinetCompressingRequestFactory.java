@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Wraps the request factory of the {@code CabinetRestTemplate} to negotiate gzip compression with Cabinet.
+ * <p>
+ * With response compression every request is sent with {@code Accept-Encoding: gzip}. A response that comes back with
+ * {@code Content-Encoding: gzip} is inflated as its body is read, so the decompressed JSON is never held in memory as a
+ * whole, and the {@code Content-Encoding} and {@code Content-Length} headers are dropped from the headers the rest
+ * template sees.
+ * <p>
+ * With request compression bodies are sent gzip-compressed with {@code Content-Encoding: gzip} when they are at least
+ * {@code requestCompressionThreshold} bytes long, below that the overhead isn't worth it. A body that is streamed
+ * onto the connection has no known size up front and is always compressed. Cabinet has to be set up to accept
+ * compressed requests.
+ */
+public class CabinetCompressingRequestFactory implements ClientHttpRequestFactory {
+
+    private static final String GZIP = "gzip";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ClientHttpRequestFactory requestFactory;
+    private final boolean requestCompressionEnabled;
+    private final int requestCompressionThreshold;
+    private final boolean responseCompressionEnabled;
+
+    /**
+     * @param requestFactory              the factory that sends the requests
+     * @param requestCompressionEnabled   whether request bodies are compressed
+     * @param requestCompressionThreshold the size, in bytes, from which a request body is compressed
+     * @param responseCompressionEnabled  whether gzip responses are asked for
+     */
+    public CabinetCompressingRequestFactory(ClientHttpRequestFactory requestFactory, boolean requestCompressionEnabled,
+                                            int requestCompressionThreshold, boolean responseCompressionEnabled) {
+        if (requestCompressionThreshold < 0) {
+            throw new IllegalArgumentException("requestCompressionThreshold must not be negative");
+        }
+        this.requestFactory = requestFactory;
+        this.requestCompressionEnabled = requestCompressionEnabled;
+        this.requestCompressionThreshold = requestCompressionThreshold;
+        this.responseCompressionEnabled = responseCompressionEnabled;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        ClientHttpRequest request = requestFactory.createRequest(uri, httpMethod);
+        if (responseCompressionEnabled && !request.getHeaders().containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, GZIP);
+        }
+        return new CompressingRequest(request);
+    }
+
+    private static boolean isGzip(HttpHeaders headers) {
+        String contentEncoding = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+        return contentEncoding != null
+                && (GZIP.equalsIgnoreCase(contentEncoding.trim()) || "x-gzip".equalsIgnoreCase(contentEncoding.trim()));
+    }
+
+    /**
+     * Decides how to send the body once its size is known (or known to be unknown), a body that is set through
+     * {@code setBody} is streamed, one written to {@code getBody} is buffered like any non-streaming request.
+     */
+    private final class CompressingRequest implements ClientHttpRequest, StreamingHttpOutputMessage {
+
+        private final ClientHttpRequest request;
+        private ByteArrayOutputStream bufferedBody;
+        private Body body;
+
+        private CompressingRequest(ClientHttpRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return request.getMethod();
+        }
+
+        @Override
+        public String getMethodValue() {
+            return request.getMethodValue();
+        }
+
+        @Override
+        public URI getURI() {
+            return request.getURI();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return request.getHeaders();
+        }
+
+        @Override
+        public OutputStream getBody() {
+            if (bufferedBody == null) {
+                bufferedBody = new ByteArrayOutputStream(1024);
+            }
+            return bufferedBody;
+        }
+
+        @Override
+        public void setBody(Body body) {
+            this.body = body;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            if (bufferedBody != null) {
+                byte[] bytes = bufferedBody.toByteArray();
+                if (compress(bytes.length)) {
+                    writeCompressed(outputStream -> outputStream.write(bytes));
+                } else if (bytes.length > 0) {
+                    if (request.getHeaders().getContentLength() < 0) {
+                        request.getHeaders().setContentLength(bytes.length);
+                    }
+                    write(outputStream -> outputStream.write(bytes));
+                }
+            } else if (body != null) {
+                if (compress(request.getHeaders().getContentLength())) {
+                    writeCompressed(body);
+                } else {
+                    write(body);
+                }
+            }
+            return new DecompressingResponse(request.execute());
+        }
+
+        /**
+         * @param length the size of the body in bytes, or -1 if it isn't known before it is written
+         */
+        private boolean compress(long length) {
+            return requestCompressionEnabled && length != 0
+                    && (length < 0 || length >= requestCompressionThreshold)
+                    && !request.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING);
+        }
+
+        private void writeCompressed(Body body) throws IOException {
+            //must change before the body is opened, the length on the wire isn't known until it is written
+            request.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+            request.getHeaders().set(HttpHeaders.CONTENT_ENCODING, GZIP);
+            write(outputStream -> {
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+                body.writeTo(StreamUtils.nonClosing(gzipOutputStream));
+                gzipOutputStream.finish();
+            });
+        }
+
+        private void write(Body body) throws IOException {
+            if (request instanceof StreamingHttpOutputMessage) {
+                ((StreamingHttpOutputMessage) request).setBody(body);
+            } else {
+                body.writeTo(request.getBody());
+            }
+        }
+    }
+
+    private static final class DecompressingResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse response;
+        private HttpHeaders headers;
+        private InputStream body;
+
+        private DecompressingResponse(ClientHttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return response.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            if (headers == null) {
+                HttpHeaders responseHeaders = response.getHeaders();
+                if (isGzip(responseHeaders)) {
+                    headers = new HttpHeaders();
+                    headers.putAll(responseHeaders);
+                    headers.remove(HttpHeaders.CONTENT_ENCODING);
+                    headers.remove(HttpHeaders.CONTENT_LENGTH);
+                } else {
+                    headers = responseHeaders;
+                }
+            }
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                InputStream responseBody = response.getBody();
+                body = isGzip(response.getHeaders()) ? inflate(responseBody) : responseBody;
+            }
+            return body;
+        }
+
+        private static InputStream inflate(InputStream responseBody) throws IOException {
+            //a body-less response (e.g. a 304) may still carry the Content-Encoding header
+            PushbackInputStream pushbackInputStream = new PushbackInputStream(responseBody, 1);
+            int firstByte = pushbackInputStream.read();
+            if (firstByte == -1) {
+                return pushbackInputStream;
+            }
+            pushbackInputStream.unread(firstByte);
+            return new GZIPInputStream(pushbackInputStream, BUFFER_SIZE);
+        }
+
+        @Override
+        public void close() {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Keeps the last response of each {@code GET} together with its validators ({@code ETag} and {@code Last-Modified}) so
+ * the next request for the same URI can be made conditional. When Cabinet answers {@code 304 Not Modified} the kept
+ * response is returned as it is, so neither the body is transferred nor anything deserialized.
+ * <p>
+ * Responses without validators are not kept. Like the {@code CabinetEntityCache}, returned entities are shared between
+ * callers and should be treated as read only.
+ */
+public class CabinetConditionalCache {
+
+    private final Cache<String, Validated> responses;
+    private final LongAdder notModifiedCount = new LongAdder();
+
+    /**
+     * @param maximumSize the maximum number of responses to keep
+     */
+    public CabinetConditionalCache(long maximumSize) {
+        this.responses = Caffeine.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * Makes a request, conditional if a response for {@code uri} has been kept
+     *
+     * @param uri      the URI of the request, used as the key
+     * @param exchange makes the {@code GET} with the given request entity (which holds only headers)
+     * @param <T>      the type of the body
+     * @return the response, or the kept response if the server answered {@code 304}
+     */
+    @SuppressWarnings("unchecked")
+    <T> ResponseEntity<T> exchange(String uri, Function<HttpEntity<?>, ResponseEntity<T>> exchange) {
+        Validated kept = responses.getIfPresent(uri);
+        if (kept == null) {
+            return keep(uri, exchange.apply(null));
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        if (kept.eTag != null) {
+            headers.setIfNoneMatch(kept.eTag);
+        }
+        if (kept.lastModified != null) {
+            //sent back exactly as the server formatted it
+            headers.set(HttpHeaders.IF_MODIFIED_SINCE, kept.lastModified);
+        }
+        ResponseEntity<T> response = exchange.apply(new HttpEntity<>(headers));
+        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+            notModifiedCount.increment();
+            return (ResponseEntity<T>) kept.response;
+        }
+        return keep(uri, response);
+    }
+
+    private <T> ResponseEntity<T> keep(String uri, ResponseEntity<T> response) {
+        HttpHeaders headers = response.getHeaders();
+        String eTag = headers.getETag();
+        String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        if (response.getStatusCode() == HttpStatus.OK && response.hasBody() && (eTag != null || lastModified != null)) {
+            responses.put(uri, new Validated(eTag, lastModified, response));
+        } else {
+            responses.invalidate(uri);
+        }
+        return response;
+    }
+
+    /**
+     * Forgets the response kept for {@code uri}, if any
+     *
+     * @param uri the URI
+     */
+    public void invalidate(String uri) {
+        responses.invalidate(uri);
+    }
+
+    public void invalidateAll() {
+        responses.invalidateAll();
+    }
+
+    /**
+     * @return the number of requests answered with {@code 304 Not Modified}
+     */
+    public long getNotModifiedCount() {
+        return notModifiedCount.sum();
+    }
+
+    /**
+     * @return the approximate number of responses kept
+     */
+    public long size() {
+        return responses.estimatedSize();
+    }
+
+    private static final class Validated {
+        private final String eTag;
+        private final String lastModified;
+        private final ResponseEntity<?> response;
+
+        private Validated(String eTag, String lastModified, ResponseEntity<?> response) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.response = response;
+        }
+    }
+}
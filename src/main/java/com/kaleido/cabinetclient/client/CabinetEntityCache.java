@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * A near-cache of the responses of {@code CabinetClient.find(id)} for one entity type. Entries are evicted when the
+ * cache grows beyond its maximum size (using Caffeine's W-TinyLFU policy, which behaves like LRU for recency heavy
+ * workloads while keeping frequently read entities) or once they are older than the time to live.
+ * <p>
+ * The client invalidates entries whenever it saves or deletes the entity, but changes made by other clients are only
+ * seen after the time to live. Cached entities are shared between callers so they should be treated as read only.
+ *
+ * @param <E> The type of {@code domain} package object cached
+ */
+public class CabinetEntityCache<E> {
+
+    //invalidations per stripe of ids, a fetch only caches its response if no invalidation of its stripe happened since
+    //the fetch started
+    private static final int GENERATION_STRIPES = 64;
+
+    private final Cache<Long, ResponseEntity<E>> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    /**
+     * @param maximumSize     the maximum number of entities to keep
+     * @param timeToLiveMillis how long an entity is served from the cache after it was fetched
+     */
+    public CabinetEntityCache(long maximumSize, long timeToLiveMillis) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLiveMillis, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached response for {@code id}, or fetches and caches it. Only successful responses with a body are
+     * cached. The fetch is done without holding any lock so slow requests don't block readers of other ids; a response
+     * is not cached if the entity was invalidated while it was being fetched, as it may be older than the change.
+     *
+     * @param id    the id of the entity
+     * @param fetch requests the entity from Cabinet
+     * @return the response
+     */
+    ResponseEntity<E> get(Long id, Supplier<ResponseEntity<E>> fetch) {
+        ResponseEntity<E> response = cache.getIfPresent(id);
+        if (response != null) {
+            return response;
+        }
+        int stripe = stripe(id);
+        long generation = generations.get(stripe);
+        ResponseEntity<E> fetched = fetch.get();
+        if (fetched != null && fetched.getStatusCode().is2xxSuccessful() && fetched.hasBody()) {
+            //checked under the entry's lock, so an invalidate either happens before and is seen here or removes it after
+            cache.asMap().compute(id, (key, cached) -> generations.get(stripe) == generation ? fetched : cached);
+        }
+        return fetched;
+    }
+
+    /**
+     * Removes the entity with the given {@code id}, if cached
+     *
+     * @param id the id of the entity, ignored if null
+     */
+    public void invalidate(Long id) {
+        if (id != null) {
+            generations.incrementAndGet(stripe(id));
+            cache.invalidate(id);
+        }
+    }
+
+    public void invalidateAll() {
+        for (int stripe = 0; stripe < GENERATION_STRIPES; stripe++) {
+            generations.incrementAndGet(stripe);
+        }
+        cache.invalidateAll();
+    }
+
+    private static int stripe(Long id) {
+        return Long.hashCode(id) & (GENERATION_STRIPES - 1);
+    }
+
+    /**
+     * @return the number of {@code find} calls answered from the cache
+     */
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    /**
+     * @return the number of {@code find} calls that had to request the entity from Cabinet
+     */
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    /**
+     * @return the approximate number of cached entities
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executors that the Cabinet clients run background and bulk work on.
+ */
+public final class CabinetExecutors {
+
+    private static Logger log = LoggerFactory.getLogger(CabinetExecutors.class);
+
+    private CabinetExecutors() {
+    }
+
+    /**
+     * A fixed pool of daemon platform threads named {@code cabinet-client-N}
+     *
+     * @param threads the number of threads in the pool
+     * @return the executor
+     */
+    public static ExecutorService newPlatformThreadPool(int threads) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cabinet-client-");
+        threadFactory.setDaemon(true);
+        return Executors.newFixedThreadPool(threads, threadFactory);
+    }
+
+    /**
+     * An executor that starts a new virtual thread for each task. Virtual threads are only available from JDK 21 so
+     * the factory method is looked up reflectively, which lets this library keep compiling for older releases.
+     *
+     * @return the executor, or empty if the running JDK doesn't support virtual threads
+     */
+    public static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+        try {
+            return Optional.of((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            log.debug("Virtual threads are not available: {}", e.toString());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The executor for the given execution mode. If virtual threads are requested but not available a platform thread
+     * pool is used instead.
+     *
+     * @param virtualThreadsEnabled whether to run on virtual threads
+     * @param platformThreads       the size of the platform thread pool
+     * @return the executor
+     */
+    public static ExecutorService newExecutor(boolean virtualThreadsEnabled, int platformThreads) {
+        if (virtualThreadsEnabled) {
+            Optional<ExecutorService> virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+            if (virtualThreadExecutor.isPresent()) {
+                log.info("Cabinet client work will run on virtual threads");
+                return virtualThreadExecutor.get();
+            }
+            log.warn("Virtual threads were requested but need JDK 21 or later, using {} platform threads", platformThreads);
+        }
+        return newPlatformThreadPool(platformThreads);
+    }
+}
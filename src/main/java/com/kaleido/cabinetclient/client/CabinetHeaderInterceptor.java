@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+/**
+ * An interceptor that only adds headers and never needs to see the request body. Requests whose body is streamed
+ * (see {@code CabinetRestTemplate.exchangeStreaming}) can't pass through ordinary interceptors, which get the body as a
+ * byte array, so the {@code CabinetRestTemplate} applies interceptors of this type to them directly.
+ */
+public interface CabinetHeaderInterceptor extends ClientHttpRequestInterceptor {
+
+    /**
+     * Adds this interceptor's headers to {@code request}
+     *
+     * @param request the request
+     */
+    void addHeaders(HttpRequest request);
+
+    @Override
+    default ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        addHeaders(request);
+        return execution.execute(request, body);
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+import com.kaleido.cabinetclient.domain.enumeration.Status;
+import com.kaleido.cabinetclient.platemap.CabinetPlateMapData;
+import com.kaleido.cabinetclient.platemap.CabinetPlateMapDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Saves {@code CabinetPlateMap} drafts by sending only the wells that changed since the last draft saved through it.
+ * <p>
+ * After each save the client remembers the saved plate data, decoded into a {@code CabinetPlateMapData}, under the
+ * checksum Cabinet returned. When the next draft of that plate map carries the same checksum (as a draft save must)
+ * the client diffs the two and {@code PUT}s a {@code CabinetPlateMapDelta} to {@code plate-maps/{id}/{deltaPath}}.
+ * Anything else is a full {@code save}: the first save of a plate map, a save that isn't a draft, a stale checksum, or
+ * plates that were added, removed or resized.
+ * <p>
+ * A delta only carries what {@code CabinetPlateMapData} models, so it is only sent when nothing else can be lost: the
+ * JSON of both drafts has to read into the model and write back out as the same JSON (no other keys, no wells it
+ * can't place), and applying the delta to the saved draft has to give the new one. An empty delta is only sent if the
+ * JSON of the data didn't change at all.
+ * <p>
+ * If Cabinet rejects a delta with a {@code 4xx} (or {@code 501}) the draft is saved in full instead. When the response
+ * says delta saves aren't there at all ({@code 404}, {@code 405} or {@code 501}) the client stops trying them.
+ */
+public class CabinetPlateMapDraftClient {
+
+    private Logger log = LoggerFactory.getLogger(CabinetPlateMapDraftClient.class);
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    //the model writes every concentration as a double, so 1 and 1.0 are the same concentration
+    private static final Comparator<JsonNode> NUMBERS_BY_VALUE = (node, other) -> node.isNumber() && other.isNumber()
+            ? Double.compare(node.asDouble(), other.asDouble()) : node.equals(other) ? 0 : 1;
+
+    private final CabinetClient<CabinetPlateMap> cabinetPlateMapClient;
+    private final String deltaPath;
+    private final Cache<Long, SavedDraft> savedDrafts;
+
+    private volatile boolean deltaSavesSupported = true;
+    private final LongAdder deltaSaveCount = new LongAdder();
+    private final LongAdder fullSaveCount = new LongAdder();
+    private final LongAdder rejectedDeltaCount = new LongAdder();
+
+    /**
+     * @param cabinetPlateMapClient the client of the plate map endpoint
+     * @param deltaPath             the path below a plate map that takes deltas
+     * @param maximumSize           the maximum number of plate maps whose last saved draft is remembered
+     */
+    public CabinetPlateMapDraftClient(CabinetClient<CabinetPlateMap> cabinetPlateMapClient, String deltaPath, long maximumSize) {
+        this.cabinetPlateMapClient = cabinetPlateMapClient;
+        this.deltaPath = deltaPath;
+        this.savedDrafts = Caffeine.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * Saves a plate map, sending only the changed wells if it is a draft based on the last draft saved through this
+     * client
+     *
+     * @param cabinetPlateMap the plate map, whose checksum is that of the draft it replaces
+     * @return A response with a Body equal to the saved plate map
+     */
+    public ResponseEntity<CabinetPlateMap> saveDraft(CabinetPlateMap cabinetPlateMap) {
+        Long id = cabinetPlateMap.getId();
+        SavedDraft savedDraft = id == null ? null : savedDrafts.getIfPresent(id);
+        DecodedDraft decodedDraft = null;
+
+        if (deltaSavesSupported && savedDraft != null && cabinetPlateMap.getStatus() == Status.DRAFT
+                && savedDraft.checksum.equals(cabinetPlateMap.getChecksum())) {
+            decodedDraft = decode(cabinetPlateMap);
+            CabinetPlateMapDelta delta = decodedDraft == null ? null : diff(savedDraft.decodedDraft, decodedDraft);
+            if (delta != null) {
+                delta.setId(id);
+                delta.setStatus(cabinetPlateMap.getStatus());
+                delta.setLastModified(cabinetPlateMap.getLastModified());
+                delta.setChecksum(cabinetPlateMap.getChecksum());
+                delta.setActivityName(cabinetPlateMap.getActivityName());
+                delta.setNumPlates(cabinetPlateMap.getNumPlates());
+                try {
+                    ResponseEntity<CabinetPlateMap> response = cabinetPlateMapClient.update(id, deltaPath, delta);
+                    deltaSaveCount.increment();
+                    remember(response, decodedDraft);
+                    return response;
+                } catch (HttpClientErrorException | HttpServerErrorException e) {
+                    if (!rejected(e.getStatusCode())) {
+                        throw e;
+                    }
+                    log.debug("Delta save of plate map {} rejected with {}, saving it in full", id, e.getStatusCode());
+                    rejectedDeltaCount.increment();
+                }
+            }
+        }
+
+        ResponseEntity<CabinetPlateMap> response = cabinetPlateMapClient.save(cabinetPlateMap);
+        fullSaveCount.increment();
+        if (id != null) {
+            savedDrafts.invalidate(id);
+        }
+        if (response.getBody() != null && response.getBody().getStatus() == Status.DRAFT) {
+            remember(response, decodedDraft != null ? decodedDraft : decode(cabinetPlateMap));
+        }
+        return response;
+    }
+
+    /**
+     * @return the delta from the saved draft to the new one, or null if it wouldn't carry the whole change
+     */
+    private CabinetPlateMapDelta diff(DecodedDraft saved, DecodedDraft updated) {
+        CabinetPlateMapDelta delta = CabinetPlateMapDelta.diff(saved.plateMapData, updated.plateMapData);
+        if (delta == null) {
+            return null;
+        }
+        if (delta.isEmpty() && !Arrays.equals(saved.jsonDigest, updated.jsonDigest)) {
+            log.debug("Data of plate map changed outside its wells, it will be saved in full");
+            return null;
+        }
+        try {
+            if (!Arrays.equals(toJson(delta.apply(saved.plateMapData)), toJson(updated.plateMapData))) {
+                log.debug("Delta doesn't reproduce the plate map, it will be saved in full");
+                return null;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Delta can't be applied, the plate map will be saved in full", e);
+            return null;
+        }
+        return delta;
+    }
+
+    /**
+     * @return the decoded data, or null if it isn't plate map data this client can diff without losing part of it
+     */
+    private DecodedDraft decode(CabinetPlateMap cabinetPlateMap) {
+        if (cabinetPlateMap.getDataContent() == null) {
+            return new DecodedDraft(CabinetPlateMapData.builder().build(), null);
+        }
+        try {
+            byte[] json;
+            try (InputStream inputStream = cabinetPlateMap.openDataStream()) {
+                json = StreamUtils.copyToByteArray(inputStream);
+            }
+            CabinetPlateMapData plateMapData = CabinetPlateMapData.read(new ByteArrayInputStream(json));
+            if (!JSON.readTree(json).equals(NUMBERS_BY_VALUE, JSON.readTree(toJson(plateMapData)))) {
+                log.debug("Data of plate map {} has more than wells and components, it will be saved in full", cabinetPlateMap.getId());
+                return null;
+            }
+            return new DecodedDraft(plateMapData, MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (IOException | RuntimeException | NoSuchAlgorithmException e) {
+            log.debug("Data of plate map {} can't be decoded, it will be saved in full", cabinetPlateMap.getId(), e);
+            return null;
+        }
+    }
+
+    private static byte[] toJson(CabinetPlateMapData plateMapData) throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        plateMapData.write(json);
+        return json.toByteArray();
+    }
+
+    private boolean rejected(HttpStatus status) {
+        if (status == HttpStatus.NOT_FOUND || status == HttpStatus.METHOD_NOT_ALLOWED || status == HttpStatus.NOT_IMPLEMENTED) {
+            deltaSavesSupported = false;
+            return true;
+        }
+        return status.is4xxClientError();
+    }
+
+    private void remember(ResponseEntity<CabinetPlateMap> response, DecodedDraft decodedDraft) {
+        CabinetPlateMap saved = response.getBody();
+        if (saved == null || saved.getId() == null) {
+            return;
+        }
+        if (decodedDraft == null || saved.getChecksum() == null || saved.getStatus() != Status.DRAFT) {
+            savedDrafts.invalidate(saved.getId());
+        } else {
+            savedDrafts.put(saved.getId(), new SavedDraft(saved.getChecksum(), decodedDraft));
+        }
+    }
+
+    /**
+     * Forgets the last saved draft of a plate map, so its next save is sent in full
+     *
+     * @param id the id of the plate map
+     */
+    public void forget(Long id) {
+        savedDrafts.invalidate(id);
+    }
+
+    public boolean isDeltaSavesSupported() {
+        return deltaSavesSupported;
+    }
+
+    /**
+     * @return the number of drafts saved as deltas
+     */
+    public long getDeltaSaveCount() {
+        return deltaSaveCount.sum();
+    }
+
+    /**
+     * @return the number of plate maps saved in full, including rejected deltas
+     */
+    public long getFullSaveCount() {
+        return fullSaveCount.sum();
+    }
+
+    /**
+     * @return the number of deltas Cabinet rejected
+     */
+    public long getRejectedDeltaCount() {
+        return rejectedDeltaCount.sum();
+    }
+
+    private static final class SavedDraft {
+        private final String checksum;
+        private final DecodedDraft decodedDraft;
+
+        private SavedDraft(String checksum, DecodedDraft decodedDraft) {
+            this.checksum = checksum;
+            this.decodedDraft = decodedDraft;
+        }
+    }
+
+    /**
+     * The data of a draft decoded into the model, and a digest of its JSON (null if it has no data)
+     */
+    private static final class DecodedDraft {
+        private final CabinetPlateMapData plateMapData;
+        private final byte[] jsonDigest;
+
+        private DecodedDraft(CabinetPlateMapData plateMapData, byte[] jsonDigest) {
+            this.plateMapData = plateMapData;
+            this.jsonDigest = jsonDigest;
+        }
+    }
+}
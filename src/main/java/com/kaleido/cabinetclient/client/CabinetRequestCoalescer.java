@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Lets identical {@code GET}s of one entity type share a single call. The first caller for a key makes the request,
+ * callers asking for the same key while it is in flight wait for it and receive the same response (or exception), so a
+ * burst of identical {@code find}s turns into one request to Cabinet. Nothing is kept once the call completes.
+ * <p>
+ * Waiting callers block on a {@code CompletableFuture} rather than a monitor so virtual threads are not pinned.
+ * Coalesced callers share the deserialized entities and should treat them as read only.
+ */
+public class CabinetRequestCoalescer {
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalescedCount = new LongAdder();
+
+    /**
+     * Makes the request for {@code key}, or joins the one already in flight
+     *
+     * @param key     identifies the request, e.g. the resolved URI and the shape of the response
+     * @param request makes the request
+     * @param <T>     the type of the response
+     * @return the response
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(String key, Supplier<T> request) {
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalescedCount.increment();
+            return (T) join(existing);
+        }
+
+        try {
+            T response = request.get();
+            call.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    private static Object join(CompletableFuture<Object> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of calls that were answered by another caller's request
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+}
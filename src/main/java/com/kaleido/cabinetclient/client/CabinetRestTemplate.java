@@ -1,9 +1,84 @@
 package com.kaleido.cabinetclient.client;
 
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.net.URI;
+
 public class CabinetRestTemplate extends RestTemplate {
+
+    //the factory as set, without the interceptors wrapped around it
+    private ClientHttpRequestFactory streamingRequestFactory;
+
     public CabinetRestTemplate() {
         super();
     }
+
+    public CabinetRestTemplate(ClientHttpRequestFactory requestFactory) {
+        super(requestFactory);
+    }
+
+    @Override
+    public void setRequestFactory(ClientHttpRequestFactory requestFactory) {
+        super.setRequestFactory(requestFactory);
+        this.streamingRequestFactory = requestFactory;
+    }
+
+    /**
+     * Like {@code exchange} but the request body is serialized straight onto the connection instead of into a byte
+     * array first, so the heap used doesn't grow with the size of the body. How the body is sent depends on the request
+     * factory: the streaming Apache HttpClient and {@code HttpURLConnection} factories send it with chunked transfer
+     * encoding.
+     * <p>
+     * Ordinary interceptors need the body as a byte array, so the body is only streamed if every interceptor is a
+     * {@code CabinetHeaderInterceptor} (and the request factory was set through this class). Otherwise this falls back
+     * to a buffered {@code exchange}.
+     *
+     * @param url          the URL
+     * @param method       the HTTP method
+     * @param body         the body to serialize
+     * @param responseType the type of the response body
+     * @param <T>          the type of the response body
+     * @return the response
+     */
+    public <T> ResponseEntity<T> exchangeStreaming(String url, HttpMethod method, Object body,
+                                                   ParameterizedTypeReference<T> responseType) {
+        if (!canStream()) {
+            return exchange(url, method, new HttpEntity<>(body), responseType);
+        }
+
+        URI uri = getUriTemplateHandler().expand(url);
+        ClientHttpResponse response = null;
+        try {
+            ClientHttpRequest request = streamingRequestFactory.createRequest(uri, method);
+            for (ClientHttpRequestInterceptor interceptor : getInterceptors()) {
+                ((CabinetHeaderInterceptor) interceptor).addHeaders(request);
+            }
+            //the Jackson converter writes onto a streaming request's output stream as the request is sent
+            httpEntityCallback(new HttpEntity<>(body), responseType.getType()).doWithRequest(request);
+            response = request.execute();
+            handleResponse(uri, method, response);
+            return this.<T>responseEntityExtractor(responseType.getType()).extractData(response);
+        } catch (IOException e) {
+            throw new ResourceAccessException("I/O error on " + method.name() + " request for \"" + url + "\": " + e.getMessage(), e);
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
+    private boolean canStream() {
+        return streamingRequestFactory != null
+                && getInterceptors().stream().allMatch(interceptor -> interceptor instanceof CabinetHeaderInterceptor);
+    }
 }
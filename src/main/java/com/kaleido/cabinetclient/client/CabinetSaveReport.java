@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The result of a chunked {@code saveAll}, with one {@code Outcome} per entity in the order the entities were given.
+ * Entities of a chunk that was saved hold the entity Cabinet returned, entities of a chunk that failed (after its
+ * retries) hold the exception.
+ *
+ * @param <E> The type of {@code domain} package object saved
+ */
+public class CabinetSaveReport<E> {
+
+    private final List<Outcome<E>> outcomes;
+
+    CabinetSaveReport(List<Outcome<E>> outcomes) {
+        this.outcomes = Collections.unmodifiableList(outcomes);
+    }
+
+    public List<Outcome<E>> getOutcomes() {
+        return outcomes;
+    }
+
+    /**
+     * @return true if every entity was saved
+     */
+    public boolean isSuccessful() {
+        return outcomes.stream().allMatch(Outcome::isSaved);
+    }
+
+    /**
+     * @return the entities returned by Cabinet for the chunks that were saved
+     */
+    public List<E> getSaved() {
+        return outcomes.stream().filter(Outcome::isSaved).map(Outcome::getSaved).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the outcomes of the entities that could not be saved
+     */
+    public List<Outcome<E>> getFailures() {
+        return outcomes.stream().filter(outcome -> !outcome.isSaved()).collect(Collectors.toList());
+    }
+
+    /**
+     * What happened to one entity of a chunked {@code saveAll}
+     *
+     * @param <E> The type of {@code domain} package object saved
+     */
+    public static class Outcome<E> {
+        private final int index;
+        private final E entity;
+        private final E saved;
+        private final RuntimeException error;
+
+        Outcome(int index, E entity, E saved, RuntimeException error) {
+            this.index = index;
+            this.entity = entity;
+            this.saved = saved;
+            this.error = error;
+        }
+
+        /**
+         * @return the position of the entity in the list that was saved
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the entity as it was given to {@code saveAll}
+         */
+        public E getEntity() {
+            return entity;
+        }
+
+        /**
+         * @return the entity as Cabinet returned it, or null if it wasn't saved or the response couldn't be matched up
+         */
+        public E getSaved() {
+            return saved;
+        }
+
+        /**
+         * @return why the chunk holding the entity failed, or null if it was saved
+         */
+        public RuntimeException getError() {
+            return error;
+        }
+
+        public boolean isSaved() {
+            return error == null;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An endpoint that has been parsed and normalized once so that query URIs can be built from it by appending to a
+ * {@code StringBuilder}. Query parameter names and values are strictly percent encoded as UTF-8 (everything except
+ * the RFC 3986 unreserved characters is encoded), which matches the {@code VALUES_ONLY} encoding of
+ * {@code DefaultUriBuilderFactory}. Strings that need no encoding are appended as they are.
+ */
+final class CabinetUriTemplate {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String base;
+    private final char firstSeparator;
+
+    /**
+     * @param endpoint an absolute http(s) URL, which may already have a query
+     * @throws IllegalArgumentException if the endpoint is not a valid http(s) URL
+     */
+    CabinetUriTemplate(String endpoint) {
+        UriComponents components = UriComponentsBuilder.fromHttpUrl(endpoint).build();
+        if (components.getFragment() != null) {
+            throw new IllegalArgumentException("Endpoint must not have a fragment: " + endpoint);
+        }
+        this.base = components.toUri().toASCIIString();
+        this.firstSeparator = components.getQuery() == null ? '?' : '&';
+    }
+
+    /**
+     * @return a builder for a query URI on this endpoint
+     */
+    Builder builder() {
+        return new Builder();
+    }
+
+    final class Builder {
+        private final StringBuilder uri = new StringBuilder(base.length() + 64).append(base);
+        private char separator = firstSeparator;
+
+        Builder queryParam(String name, String value) {
+            appendName(name);
+            encode(value, uri);
+            return this;
+        }
+
+        /**
+         * Adds a {@code field.operator=value} criteria parameter
+         */
+        Builder criteria(String field, String operator, String value) {
+            uri.append(separator);
+            separator = '&';
+            encode(field, uri);
+            uri.append('.');
+            encode(operator, uri);
+            uri.append('=');
+            encode(value, uri);
+            return this;
+        }
+
+        Builder queryParam(String name, int value) {
+            appendName(name);
+            uri.append(value);
+            return this;
+        }
+
+        private void appendName(String name) {
+            uri.append(separator);
+            separator = '&';
+            encode(name, uri);
+            uri.append('=');
+        }
+
+        URI build() {
+            return URI.create(uri.toString());
+        }
+    }
+
+    /**
+     * Appends {@code value} to {@code out}, percent encoding everything but unreserved characters. A {@code null} value
+     * is appended as an empty string.
+     */
+    static void encode(String value, StringBuilder out) {
+        if (value == null) {
+            return;
+        }
+        int length = value.length();
+        int i = 0;
+        while (i < length && isUnreserved(value.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            out.append(value);
+            return;
+        }
+        out.append(value, 0, i);
+        for (byte b : value.substring(i).getBytes(StandardCharsets.UTF_8)) {
+            if (isUnreserved((char) b)) {
+                out.append((char) b);
+            } else {
+                out.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+        }
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+}
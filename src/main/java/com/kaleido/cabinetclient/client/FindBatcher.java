@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Collects the ids of {@code find} calls made within {@code window} milliseconds of each other and loads them with one
+ * multi-get, in the manner of a DataLoader. The caller that opens a batch waits out the window and then sends it, and a
+ * caller that fills a batch to {@code maxBatchSize} ids sends it straight away, so requests are always made on a thread
+ * that is waiting for them anyway and no executor thread is tied up. Ids asked for more than once in a batch are
+ * loaded once.
+ * <p>
+ * The pending batch is guarded by a {@code ReentrantLock}, not a monitor, so virtual threads are not pinned. An id
+ * that the multi-get doesn't return fails with the same {@code 404} that {@code find} would have thrown.
+ *
+ * @param <E> The type of {@code domain} package object being loaded
+ */
+class FindBatcher<E> {
+
+    private final Function<Collection<Long>, Map<Long, E>> multiGet;
+    private final long window;
+    private final int maxBatchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<Long, CompletableFuture<E>> pending;
+
+    /**
+     * @param multiGet     loads the entities with the given ids, keyed by id
+     * @param window       how long, in milliseconds, ids are collected before they are loaded
+     * @param maxBatchSize the maximum number of ids loaded together
+     */
+    FindBatcher(Function<Collection<Long>, Map<Long, E>> multiGet, long window, int maxBatchSize) {
+        if (window < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("window and maxBatchSize must be at least 1");
+        }
+        this.multiGet = multiGet;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Adds {@code id} to the pending batch and waits for it to be loaded
+     *
+     * @param id the id of the entity
+     * @return the entity
+     */
+    E find(Long id) {
+        Map<Long, CompletableFuture<E>> batch;
+        CompletableFuture<E> entity;
+        boolean opened = false;
+        boolean filled = false;
+        lock.lock();
+        try {
+            if (pending == null) {
+                pending = new LinkedHashMap<>();
+                opened = true;
+            }
+            batch = pending;
+            entity = batch.computeIfAbsent(id, key -> new CompletableFuture<>());
+            if (batch.size() >= maxBatchSize) {
+                pending = null;
+                filled = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (filled) {
+            load(batch);
+        } else if (opened) {
+            awaitWindow(entity);
+            send(batch);
+        }
+        return join(entity);
+    }
+
+    /**
+     * Waits until the window has passed, or the batch was filled and loaded by another caller
+     */
+    private void awaitWindow(CompletableFuture<E> entity) {
+        try {
+            entity.get(window, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            //the window has passed, or the batch has been loaded (and the failure is reported by join)
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Loads {@code batch} if it is still the pending batch, otherwise it was already sent because it filled up
+     */
+    private void send(Map<Long, CompletableFuture<E>> batch) {
+        lock.lock();
+        try {
+            if (pending != batch) {
+                return;
+            }
+            pending = null;
+        } finally {
+            lock.unlock();
+        }
+        load(batch);
+    }
+
+    private void load(Map<Long, CompletableFuture<E>> batch) {
+        List<Long> ids = new ArrayList<>(batch.keySet());
+        try {
+            Map<Long, E> entities = multiGet.apply(ids);
+            batch.forEach((id, entity) -> {
+                E found = entities.get(id);
+                if (found != null) {
+                    entity.complete(found);
+                } else {
+                    entity.completeExceptionally(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            batch.values().forEach(entity -> entity.completeExceptionally(e));
+        }
+    }
+
+    private E join(CompletableFuture<E> entity) {
+        try {
+            return entity.join();
+        } catch (CompletionException e) {
+            //surface the exception thrown by the rest template rather than the wrapper
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
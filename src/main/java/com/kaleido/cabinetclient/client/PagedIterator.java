@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
+
+/**
+ * Walks the pages of a Cabinet query lazily. Only one page is held in memory at a time and, while the caller works
+ * through the current page, the next page is fetched on the supplied {@code Executor}. Iteration stops at the first
+ * page holding fewer than {@code pageSize} entities.
+ *
+ * @param <E> The type of {@code domain} package object being iterated
+ */
+class PagedIterator<E> implements Iterator<E>, AutoCloseable {
+
+    private final IntFunction<ResponseEntity<List<E>>> pageRequest;
+    private final int pageSize;
+    private final Executor executor;
+
+    private Iterator<E> current = Collections.emptyIterator();
+    private CompletableFuture<List<E>> nextPage;
+    private int nextPageNumber;
+    private boolean started = false;
+
+    /**
+     * @param pageRequest fetches a page of {@code pageSize} entities given its number (pages numbered from 0)
+     * @param firstPage   the page number to start from
+     * @param pageSize    the maximum number of entities in a page
+     * @param executor    the executor used to prefetch the next page
+     */
+    PagedIterator(IntFunction<ResponseEntity<List<E>>> pageRequest, int firstPage, int pageSize, Executor executor) {
+        this.pageRequest = pageRequest;
+        this.nextPageNumber = firstPage;
+        this.pageSize = pageSize;
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!started) {
+            started = true;
+            nextPage = fetch(nextPageNumber);
+        }
+        while (!current.hasNext()) {
+            if (nextPage == null) {
+                return false;
+            }
+            List<E> page = join(nextPage);
+            nextPage = page.size() < pageSize ? null : fetch(++nextPageNumber);
+            current = page.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * Abandons any page that is still being prefetched.
+     */
+    @Override
+    public void close() {
+        if (nextPage != null) {
+            nextPage.cancel(true);
+            nextPage = null;
+        }
+        current = Collections.emptyIterator();
+    }
+
+    private CompletableFuture<List<E>> fetch(int pageNumber) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<E> body = pageRequest.apply(pageNumber).getBody();
+            return body == null ? Collections.<E>emptyList() : body;
+        }, executor);
+    }
+
+    private List<E> join(CompletableFuture<List<E>> page) {
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            //surface the exception thrown by the rest template rather than the wrapper
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads every page of a Cabinet query by fanning the page requests out over an {@code Executor}. The first page is
+ * fetched on the calling thread and the total number of pages is taken from its {@code X-Total-Count} or {@code Link}
+ * header. The remaining pages are then fetched by at most {@code parallelism} concurrent workers. If the server sends
+ * neither header the pages are read one after another until a short page is returned.
+ *
+ * @param <E> The type of {@code domain} package object being read
+ */
+class ParallelPageReader<E> {
+
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    private static final Pattern LAST_PAGE_LINK = Pattern.compile("<[^>]*[?&]page=(\\d+)[^>]*>;\\s*rel=\"last\"");
+
+    private final IntFunction<ResponseEntity<List<E>>> pageRequest;
+    private final int pageSize;
+    private final int parallelism;
+    private final Executor executor;
+
+    /**
+     * @param pageRequest fetches a page of {@code pageSize} entities given its number (pages numbered from 0)
+     * @param pageSize    the maximum number of entities in a page
+     * @param parallelism the maximum number of pages requested at the same time
+     * @param executor    the executor the page requests are run on
+     */
+    ParallelPageReader(IntFunction<ResponseEntity<List<E>>> pageRequest, int pageSize, int parallelism, Executor executor) {
+        if (pageSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("pageSize and parallelism must be at least 1");
+        }
+        this.pageRequest = pageRequest;
+        this.pageSize = pageSize;
+        this.parallelism = parallelism;
+        this.executor = executor;
+    }
+
+    /**
+     * Reads all pages and merges them in page order.
+     *
+     * @return every entity, in the order the server returned them
+     */
+    List<E> readOrdered() {
+        ResponseEntity<List<E>> first = pageRequest.apply(0);
+        List<E> firstPage = body(first);
+        int totalPages = totalPages(first.getHeaders());
+
+        if (totalPages < 0) {
+            return readSequentially(firstPage);
+        }
+
+        List<List<E>> pages = new ArrayList<>(Collections.nCopies(totalPages, Collections.<E>emptyList()));
+        if (totalPages > 0) {
+            pages.set(0, firstPage);
+        }
+        AtomicInteger nextPage = new AtomicInteger(1);
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(parallelism, Math.max(totalPages - 1, 0))];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = CompletableFuture.runAsync(() -> {
+                int page;
+                while ((page = nextPage.getAndIncrement()) < totalPages) {
+                    pages.set(page, body(pageRequest.apply(page)));
+                }
+            }, executor);
+        }
+        join(CompletableFuture.allOf(workers));
+
+        List<E> entities = new ArrayList<>();
+        pages.forEach(entities::addAll);
+        return entities;
+    }
+
+    /**
+     * Reads all pages, streaming the entities of each page as soon as that page arrives. Entities within a page keep
+     * their order but pages may arrive in any order. Closing the stream stops any further pages being requested.
+     *
+     * @return a {@code Stream} of every entity
+     */
+    Stream<E> readUnordered() {
+        ResponseEntity<List<E>> first = pageRequest.apply(0);
+        List<E> firstPage = body(first);
+        int totalPages = totalPages(first.getHeaders());
+
+        if (totalPages < 0) {
+            PagedIterator<E> remaining = new PagedIterator<>(pageRequest, 1, pageSize, executor);
+            Stream<E> rest = firstPage.size() < pageSize ? Stream.empty() :
+                    StreamSupport.stream(Spliterators.spliteratorUnknownSize(remaining, Spliterator.NONNULL), false)
+                            .onClose(remaining::close);
+            return Stream.concat(firstPage.stream(), rest);
+        }
+
+        BlockingQueue<Object> arrivals = new LinkedBlockingQueue<>();
+        AtomicInteger nextPage = new AtomicInteger(1);
+        AtomicBoolean closed = new AtomicBoolean(false);
+        int workers = Math.min(parallelism, Math.max(totalPages - 1, 0));
+        for (int i = 0; i < workers; i++) {
+            CompletableFuture.runAsync(() -> {
+                int page;
+                while (!closed.get() && (page = nextPage.getAndIncrement()) < totalPages) {
+                    try {
+                        arrivals.add(body(pageRequest.apply(page)));
+                    } catch (RuntimeException | Error e) {
+                        arrivals.add(e);
+                        return;
+                    }
+                }
+            }, executor);
+        }
+
+        Iterator<E> iterator = new Iterator<E>() {
+            private Iterator<E> current = firstPage.iterator();
+            private int pagesReceived = 1;
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext()) {
+                    if (pagesReceived >= totalPages) {
+                        return false;
+                    }
+                    current = nextArrival().iterator();
+                    pagesReceived++;
+                }
+                return true;
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+
+            @SuppressWarnings("unchecked")
+            private List<E> nextArrival() {
+                Object arrival;
+                try {
+                    arrival = arrivals.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for a page", e);
+                }
+                if (arrival instanceof RuntimeException) {
+                    closed.set(true);
+                    throw (RuntimeException) arrival;
+                } else if (arrival instanceof Error) {
+                    closed.set(true);
+                    throw (Error) arrival;
+                }
+                return (List<E>) arrival;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false)
+                .onClose(() -> closed.set(true));
+    }
+
+    /**
+     * Works out the number of pages from the paging headers Cabinet returns.
+     *
+     * @param headers the headers of the first page
+     * @return the number of pages, or -1 if the headers don't say
+     */
+    int totalPages(HttpHeaders headers) {
+        String totalCount = headers.getFirst(TOTAL_COUNT_HEADER);
+        if (totalCount != null) {
+            try {
+                long total = Long.parseLong(totalCount.trim());
+                return (int) Math.min((total + pageSize - 1) / pageSize, Integer.MAX_VALUE);
+            } catch (NumberFormatException e) {
+                //fall through to the Link header
+            }
+        }
+
+        String link = headers.getFirst(HttpHeaders.LINK);
+        if (link != null) {
+            Matcher matcher = LAST_PAGE_LINK.matcher(link);
+            if (matcher.find()) {
+                return Integer.parseInt(matcher.group(1)) + 1;
+            }
+        }
+        return -1;
+    }
+
+    private List<E> readSequentially(List<E> firstPage) {
+        List<E> entities = new ArrayList<>(firstPage);
+        List<E> page = firstPage;
+        for (int pageNumber = 1; page.size() >= pageSize; pageNumber++) {
+            page = body(pageRequest.apply(pageNumber));
+            entities.addAll(page);
+        }
+        return entities;
+    }
+
+    private List<E> body(ResponseEntity<List<E>> response) {
+        List<E> body = response.getBody();
+        return body == null ? Collections.emptyList() : body;
+    }
+
+    private void join(CompletableFuture<?> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            //surface the exception thrown by the rest template rather than the wrapper
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import com.kaleido.cabinetclient.CabinetClientProperties;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * A reactive counterpart of {@code CabinetClient} built on {@code WebClient}. Queries return a {@code Flux} that
+ * requests pages from Cabinet as the subscriber signals demand; the next page is only requested once the current
+ * one has been consumed. The elements of each JSON array are decoded one at a time as the bytes arrive rather than
+ * after the whole body has been buffered, so arbitrarily large result sets can be processed in constant memory.
+ * <p>
+ * Requests that fail with a 502 or 504 are retried with the same exponential backoff as the
+ * {@code cabinetRetryTemplate}. Error responses are mapped to the same exceptions as the {@code CabinetResponseErrorHandler}.
+ * Saves and deletes remove the entity from the caches of the wrapped {@code CabinetClient}, as its own writes do.
+ *
+ * @param <E> The type of {@code domain} package object of the client
+ */
+public class ReactiveCabinetClient<E> {
+
+    private Logger log = LoggerFactory.getLogger(ReactiveCabinetClient.class);
+
+    private final CabinetClient<E> cabinetClient;
+    private final WebClient webClient;
+    private final Class<E> entityClass;
+
+    private final int pageSize;
+    private final long retryInterval;
+    private final double retryMultiplier;
+    private final long maxRetryInterval;
+    private final int maxRequestAttempts;
+
+    /**
+     * A reactive client to the Cabinet service parameterized on type {@code E}.
+     *
+     * @param cabinetClient           the blocking client for the same entity, used for its endpoints and URI building
+     * @param webClient               the web client requests are sent with
+     * @param cabinetClientProperties supplies the page size and retry settings
+     */
+    public ReactiveCabinetClient(CabinetClient<E> cabinetClient, WebClient webClient, CabinetClientProperties cabinetClientProperties) {
+        this.cabinetClient = cabinetClient;
+        this.webClient = webClient;
+        this.entityClass = cabinetClient.getEntityClass();
+        this.pageSize = cabinetClientProperties.getStreamPageSize();
+        this.retryInterval = cabinetClientProperties.getRetryInterval();
+        this.retryMultiplier = cabinetClientProperties.getRetryMultiplier();
+        this.maxRetryInterval = cabinetClientProperties.getMaxRetryInterval();
+        this.maxRequestAttempts = cabinetClientProperties.getMaxRequestAttempts();
+    }
+
+    public Class<E> getEntityClass() {
+        return entityClass;
+    }
+
+    /**
+     * Find an entity using it's {@code id}.
+     *
+     * @param entityId the id of the entity
+     * @return A {@code Mono} of the matching entity (empty if the response has no body)
+     */
+    public Mono<E> find(final Long entityId) {
+        return retrieve(webClient.get().uri(cabinetClient.getEndpoint() + "/" + entityId))
+                .bodyToMono(entityClass)
+                .retryWhen(retryOnGatewayErrors());
+    }
+
+    /**
+     * Streams all entities, requesting pages of {@code streamPageSize} on demand
+     *
+     * @return a {@code Flux} of all entities
+     */
+    public Flux<E> findAll() {
+        return findAll(pageSize);
+    }
+
+    /**
+     * Streams all entities, requesting pages on demand
+     *
+     * @param pageSize the maximum number of entities fetched per request
+     * @return a {@code Flux} of all entities
+     */
+    public Flux<E> findAll(int pageSize) {
+        return pages(page -> cabinetClient.findByFieldsEqualUri(Collections.emptyMap(), page, pageSize), pageSize);
+    }
+
+    /**
+     * Streams entities where named fields equal their specified values, requesting pages on demand
+     *
+     * @param fieldValueMap the map of fields to be search and their respective search values
+     * @return a {@code Flux} of the entities that match the search criteria
+     */
+    public Flux<E> findByFieldsEqual(final Map<String, String> fieldValueMap) {
+        return findByFieldsEqual(fieldValueMap, pageSize);
+    }
+
+    /**
+     * Streams entities where named fields equal their specified values, requesting pages on demand
+     *
+     * @param fieldValueMap the map of fields to be search and their respective search values
+     * @param pageSize      the maximum number of entities fetched per request
+     * @return a {@code Flux} of the entities that match the search criteria
+     */
+    public Flux<E> findByFieldsEqual(final Map<String, String> fieldValueMap, int pageSize) {
+        return pages(page -> cabinetClient.findByFieldsEqualUri(fieldValueMap, page, pageSize), pageSize);
+    }
+
+    /**
+     * Streams entities where named fields compare to their specified values, requesting pages on demand
+     *
+     * @param fieldValOperatorMap the map of fields to be search and their respective search values and operators
+     * @return a {@code Flux} of the entities that match the search criteria
+     */
+    public Flux<E> findByFieldsWithOperators(final Map<String, Map<String, String>> fieldValOperatorMap) {
+        return pages(page -> cabinetClient.findByFieldsWithOperatorsUri(fieldValOperatorMap, page, pageSize), pageSize);
+    }
+
+    /**
+     * Streams the results of a search of the elastic search backed index, requesting pages on demand
+     *
+     * @param query the query string
+     * @return a {@code Flux} of the matching entities
+     */
+    public Flux<E> search(String query) {
+        return search(query, pageSize);
+    }
+
+    /**
+     * Streams the results of a search of the elastic search backed index, requesting pages on demand
+     *
+     * @param query    the query string
+     * @param pageSize the maximum number of entities fetched per request
+     * @return a {@code Flux} of the matching entities
+     */
+    public Flux<E> search(String query, int pageSize) {
+        return pages(page -> cabinetClient.searchUri(query, page, pageSize), pageSize);
+    }
+
+    /**
+     * Save an entity. If the entity has an {@code id} an attempt will be made to update it. If it doesn't have an
+     * {@code id} a new entity will be created.
+     *
+     * @param entity the entity to create or update
+     * @return A {@code Mono} of the created or updated entity
+     */
+    public Mono<E> save(@Valid E entity) {
+        Long id = cabinetClient.getEntityId(entity);
+        WebClient.RequestBodySpec request = id == null ?
+                webClient.post().uri(cabinetClient.getEndpoint()) : webClient.put().uri(cabinetClient.getEndpoint());
+        return retrieve(request.syncBody(entity))
+                .bodyToMono(entityClass)
+                .retryWhen(retryOnGatewayErrors())
+                //even a failed update may have been applied
+                .doFinally(signal -> cabinetClient.invalidateCached(id));
+    }
+
+    /**
+     * Save a list of entities. Behavior of the save (create vs update) will be done by Cabinet.
+     *
+     * @param entityList the list of an entity to create or update
+     * @return A {@code Flux} of the created or updated entities
+     */
+    public Flux<E> saveAll(@Valid List<E> entityList) {
+        return retrieve(webClient.post().uri(cabinetClient.getEndpoint() + "/save-all").syncBody(entityList))
+                .bodyToFlux(entityClass)
+                .retryWhen(retryOnGatewayErrors())
+                .doFinally(signal -> cabinetClient.invalidateCached(entityList));
+    }
+
+    /**
+     * Deletes the entity with the matching {@code entityId}.
+     *
+     * @param entityId the id of the entity to delete
+     * @return A {@code Mono} that completes once the entity is deleted
+     */
+    public Mono<Void> delete(final Long entityId) {
+        return retrieve(webClient.delete().uri(cabinetClient.getEndpoint() + "/{id}", entityId))
+                .bodyToMono(Void.class)
+                .retryWhen(retryOnGatewayErrors())
+                .doFinally(signal -> cabinetClient.invalidateCached(entityId));
+    }
+
+    /**
+     * Concatenates pages, starting from page 0, until a page holds fewer than {@code pageSize} entities. A page is
+     * only requested once the previous page has completed and there is still demand.
+     *
+     * @param pageUri  builds the URI of a page given its number
+     * @param pageSize the maximum number of entities in a page
+     * @return a {@code Flux} of the entities of every page
+     */
+    protected Flux<E> pages(IntFunction<URI> pageUri, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        return Flux.defer(() -> {
+            AtomicBoolean lastPage = new AtomicBoolean(false);
+            return Flux.range(0, Integer.MAX_VALUE)
+                    .takeWhile(page -> !lastPage.get())
+                    .concatMap(page -> {
+                        if (lastPage.get()) {
+                            return Flux.empty();
+                        }
+                        AtomicInteger received = new AtomicInteger();
+                        return retrieve(webClient.get().uri(pageUri.apply(page)))
+                                .bodyToFlux(entityClass)
+                                .retryWhen(retryOnGatewayErrors())
+                                .doOnNext(entity -> received.incrementAndGet())
+                                .doOnComplete(() -> lastPage.set(received.get() < pageSize));
+                    }, 1);
+        });
+    }
+
+    private WebClient.ResponseSpec retrieve(WebClient.RequestHeadersSpec<?> request) {
+        return request.retrieve()
+                .onStatus(HttpStatus::isError, response -> response.bodyToMono(Void.class)
+                        .then(Mono.fromSupplier(() -> toException(response))));
+    }
+
+    /**
+     * Maps an error response to the exception the {@code CabinetResponseErrorHandler} would throw for it
+     */
+    private static Throwable toException(ClientResponse response) {
+        HttpStatus statusCode = response.statusCode();
+        if (statusCode.equals(HttpStatus.BAD_GATEWAY)) {
+            return new CabinetClientHTTPException.CabinetClientBadGatewayException(statusCode);
+        } else if (statusCode.equals(HttpStatus.GATEWAY_TIMEOUT)) {
+            return new CabinetClientHTTPException.CabinetClientGatewayTimeoutException(statusCode);
+        } else if (statusCode.is5xxServerError()) {
+            return new HttpServerErrorException(statusCode, statusCode.getReasonPhrase());
+        }
+        return new HttpClientErrorException(statusCode, statusCode.getReasonPhrase());
+    }
+
+    /**
+     * Retries 502 and 504 responses up to {@code maxRequestAttempts} (including the first attempt), waiting
+     * {@code retryInterval} milliseconds, multiplied by {@code retryMultiplier} each attempt up to {@code maxRetryInterval}.
+     */
+    private Function<Flux<Throwable>, Publisher<?>> retryOnGatewayErrors() {
+        return errors -> errors.index().concatMap(indexedError -> {
+            long attempt = indexedError.getT1() + 1;
+            Throwable error = indexedError.getT2();
+            if (attempt >= maxRequestAttempts || !CabinetClientHTTPException.isRetryable(error)) {
+                return Mono.error(error);
+            }
+            long delay = (long) Math.min(retryInterval * Math.pow(retryMultiplier, attempt - 1), maxRetryInterval);
+            log.debug("Attempt {} failed with {}, retrying in {}ms", attempt, error.getMessage(), delay);
+            return Mono.delay(Duration.ofMillis(delay));
+        });
+    }
+}
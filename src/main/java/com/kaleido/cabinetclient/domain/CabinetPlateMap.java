@@ -2,11 +2,20 @@ package com.kaleido.cabinetclient.domain;
 
 import javax.validation.constraints.*;
 
+import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.channels.ReadableByteChannel;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.kaleido.cabinetclient.domain.enumeration.Status;
+import com.kaleido.cabinetclient.platemap.CabinetPlateMapChecksum;
+import com.kaleido.cabinetclient.platemap.CabinetPlateMapCodec;
+import com.kaleido.cabinetclient.platemap.CabinetPlateMapSpill;
 
 /**
  * A CabinetPlateMap.
@@ -32,15 +41,21 @@ public class CabinetPlateMap implements Serializable {
     private String activityName;
 
     /**
-     * The data field is a gzip - base64 encoded string of the plate map data
+     * The data field is a gzip - base64 encoded string of the plate map data. Large data read from JSON may be held in
+     * a {@code CabinetPlateMapSpill} rather than a {@code String}
      */
-    private String data;
+    private CharSequence data;
 
     /**
      * The number of plates that are in the CabinetPlateMap
      */
     private Integer numPlates;
 
+    /**
+     * The result of the last calculateChecksum and the fields it was calculated from
+     */
+    private transient volatile CachedChecksum cachedChecksum;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here, do not remove
     public Long getId() {
         return id;
@@ -102,8 +117,12 @@ public class CabinetPlateMap implements Serializable {
         this.activityName = activityName;
     }
 
+    /**
+     * @return the data, copied onto the heap if it was spilled
+     */
+    @JsonIgnore
     public String getData() {
-        return data;
+        return data == null ? null : data.toString();
     }
 
     public CabinetPlateMap data(String data) {
@@ -111,9 +130,25 @@ public class CabinetPlateMap implements Serializable {
         return this;
     }
 
+    @JsonIgnore
     public void setData(String data) {
         this.data = data;
     }
+
+    /**
+     * @return the data as it is held, a {@code String} or a {@code CabinetPlateMapSpill}, without copying it
+     */
+    @JsonProperty("data")
+    @JsonSerialize(using = CabinetPlateMapSpill.Serializer.class)
+    public CharSequence getDataContent() {
+        return data;
+    }
+
+    @JsonProperty("data")
+    @JsonDeserialize(using = CabinetPlateMapSpill.Deserializer.class)
+    public void setDataContent(CharSequence data) {
+        this.data = data;
+    }
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here, do not remove
 
     public Integer getNumPlates() {
@@ -129,6 +164,24 @@ public class CabinetPlateMap implements Serializable {
         this.numPlates = numPlates;
     }
 
+    /**
+     * Opens the plate map JSON held in {@code data}. It is decoded as it is read, rather than up front.
+     *
+     * @return the decoded data, empty if there is no data
+     */
+    public InputStream openDataStream() {
+        return CabinetPlateMapCodec.openStream(getDataContent());
+    }
+
+    /**
+     * Opens the plate map JSON held in {@code data} as a channel. It is decoded as it is read, rather than up front.
+     *
+     * @return the decoded data, empty if there is no data
+     */
+    public ReadableByteChannel openDataChannel() {
+        return CabinetPlateMapCodec.openChannel(getDataContent());
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -158,8 +211,57 @@ public class CabinetPlateMap implements Serializable {
                 "}";
     }
 
+    /**
+     * Hashes the text of {@code prepareStringForChecksum()} without building it, see {@code CabinetPlateMapChecksum}.
+     * The checksum is kept until the status, lastModified, activityName or data is changed. A field changed while the
+     * checksum is calculated is not missed: the calculation is repeated until the fields are the same before and after.
+     *
+     * @param algorithm the name of a {@code MessageDigest} algorithm, e.g. SHA-256
+     * @return the digest as lower case hex
+     */
+    public String calculateChecksum(String algorithm) {
+        CachedChecksum cached = cachedChecksum;
+        if (cached != null && cached.matches(this, algorithm)) {
+            return cached.checksum;
+        }
+        while (true) {
+            CachedChecksum calculated = new CachedChecksum(this, algorithm);
+            calculated.checksum = CabinetPlateMapChecksum.checksum(this, algorithm);
+            if (calculated.matches(this, algorithm)) {
+                cachedChecksum = calculated;
+                return calculated.checksum;
+            }
+        }
+    }
+
     public String prepareStringForChecksum() {
         DateTimeFormatter formatter = DateTimeFormatter.ISO_DATE_TIME;
         return getStatus().toString()+getLastModified().format(formatter)+getActivityName()+getData();
     }
+
+    /**
+     * A checksum and the fields it was calculated from, compared by identity
+     */
+    private static final class CachedChecksum {
+        private final String algorithm;
+        private final Status status;
+        private final ZonedDateTime lastModified;
+        private final String activityName;
+        private final CharSequence data;
+        private String checksum;
+
+        private CachedChecksum(CabinetPlateMap cabinetPlateMap, String algorithm) {
+            this.algorithm = algorithm;
+            this.status = cabinetPlateMap.status;
+            this.lastModified = cabinetPlateMap.lastModified;
+            this.activityName = cabinetPlateMap.activityName;
+            this.data = cabinetPlateMap.data;
+        }
+
+        private boolean matches(CabinetPlateMap cabinetPlateMap, String algorithm) {
+            return this.algorithm.equals(algorithm) && status == cabinetPlateMap.status
+                    && lastModified == cabinetPlateMap.lastModified && activityName == cabinetPlateMap.activityName
+                    && data == cabinetPlateMap.data;
+        }
+    }
 }
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.platemap;
+
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes the {@code data} of many plate maps at once on a {@code ForkJoinPool}, for instance a page of plate maps
+ * read with {@code findAll}.
+ * <p>
+ * Each worker thread of the pool keeps one {@code Inflater} and one read buffer and decodes every plate map it is
+ * given with them, rather than allocating both (and the native memory of the inflater) per plate map. Decoded plate
+ * maps are handed back as they finish, so the first can be used while the rest are still being decoded; a plate map
+ * that can't be decoded is handed back with its error instead of failing the others, even if the error is an
+ * {@code Error} such as running out of memory.
+ * <p>
+ * A decoder is thread safe. It should not be used from a task running on its own pool, as reading the results waits
+ * for the pool.
+ */
+public class CabinetPlateMapBulkDecoder implements AutoCloseable {
+
+    private static final ThreadLocal<WorkerBuffers> WORKER_BUFFERS = ThreadLocal.withInitial(WorkerBuffers::new);
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    /**
+     * Decodes on a pool of the given parallelism, which is shut down when the decoder is closed
+     *
+     * @param parallelism the number of plate maps decoded at once, 0 to decode on the common pool
+     */
+    public CabinetPlateMapBulkDecoder(int parallelism) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("parallelism must not be negative");
+        }
+        this.ownsPool = parallelism > 0;
+        this.pool = ownsPool ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Decodes on the given pool, which is left running when the decoder is closed
+     *
+     * @param pool the pool
+     */
+    public CabinetPlateMapBulkDecoder(ForkJoinPool pool) {
+        this.pool = pool;
+        this.ownsPool = false;
+    }
+
+    /**
+     * Decodes plate maps in parallel
+     *
+     * @param cabinetPlateMaps the plate maps
+     * @return one result per plate map, in the order they finish. Closing the stream before all are read stops the
+     * plate maps not yet started from being decoded.
+     */
+    public Stream<Decoded> decode(List<CabinetPlateMap> cabinetPlateMaps) {
+        List<CabinetPlateMap> plateMaps = new ArrayList<>(cabinetPlateMaps);
+        BlockingQueue<Decoded> results = new LinkedBlockingQueue<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        if (!plateMaps.isEmpty()) {
+            pool.execute(new DecodeTask(plateMaps, 0, plateMaps.size(), results, cancelled));
+        }
+
+        Spliterator<Decoded> spliterator = new Spliterators.AbstractSpliterator<Decoded>(plateMaps.size(),
+                Spliterator.SIZED | Spliterator.NONNULL) {
+            private int taken;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Decoded> action) {
+                if (taken == plateMaps.size()) {
+                    return false;
+                }
+                try {
+                    action.accept(results.take());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancelled.set(true);
+                    throw new IllegalStateException("Interrupted while waiting for plate maps to be decoded", e);
+                }
+                taken++;
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> cancelled.set(true));
+    }
+
+    /**
+     * Decodes plate maps in parallel
+     *
+     * @param cabinetPlateMaps the plate maps, which are collected before decoding starts
+     * @return one result per plate map, in the order they finish
+     */
+    public Stream<Decoded> decode(Stream<CabinetPlateMap> cabinetPlateMaps) {
+        return decode(cabinetPlateMaps.collect(Collectors.toList()));
+    }
+
+    /**
+     * Decodes one plate map with the buffers of the current thread
+     */
+    static Decoded decodeOne(CabinetPlateMap cabinetPlateMap) {
+        CharSequence data = cabinetPlateMap.getDataContent();
+        if (data == null) {
+            return new Decoded(cabinetPlateMap, CabinetPlateMapData.builder().build(), null);
+        }
+        WorkerBuffers buffers = WORKER_BUFFERS.get();
+        try (InputStream json = CabinetPlateMapCodec.openStream(data, buffers.inflater, buffers.buffer)) {
+            return new Decoded(cabinetPlateMap, CabinetPlateMapData.read(json), null);
+        } catch (IOException | RuntimeException e) {
+            return new Decoded(cabinetPlateMap, null, e);
+        }
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Shuts down the pool if the decoder created it
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Splits the plate maps in halves until each task decodes a single plate map, so idle workers can steal the rest
+     */
+    private static final class DecodeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<CabinetPlateMap> plateMaps;
+        private final int from;
+        private final int to;
+        private final BlockingQueue<Decoded> results;
+        private final AtomicBoolean cancelled;
+
+        private DecodeTask(List<CabinetPlateMap> plateMaps, int from, int to, BlockingQueue<Decoded> results,
+                           AtomicBoolean cancelled) {
+            this.plateMaps = plateMaps;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled.get()) {
+                return;
+            }
+            if (to - from == 1) {
+                CabinetPlateMap cabinetPlateMap = plateMaps.get(from);
+                Decoded decoded;
+                try {
+                    decoded = decodeOne(cabinetPlateMap);
+                } catch (Throwable e) {
+                    //a task that throws adds no result, the reader would wait for it forever
+                    decoded = new Decoded(cabinetPlateMap, null, e);
+                }
+                results.add(decoded);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new DecodeTask(plateMaps, from, middle, results, cancelled),
+                        new DecodeTask(plateMaps, middle, to, results, cancelled));
+            }
+        }
+    }
+
+    /**
+     * The inflater and buffer of one worker thread, reused for every plate map it decodes
+     */
+    private static final class WorkerBuffers {
+        private final Inflater inflater = new Inflater(true);
+        private final byte[] buffer = new byte[CabinetPlateMapCodec.BUFFER_SIZE];
+    }
+
+    /**
+     * A plate map and its decoded data, or the error decoding it
+     */
+    public static final class Decoded {
+
+        private final CabinetPlateMap cabinetPlateMap;
+        private final CabinetPlateMapData plateMapData;
+        private final Throwable error;
+
+        Decoded(CabinetPlateMap cabinetPlateMap, CabinetPlateMapData plateMapData, Throwable error) {
+            this.cabinetPlateMap = cabinetPlateMap;
+            this.plateMapData = plateMapData;
+            this.error = error;
+        }
+
+        public CabinetPlateMap getCabinetPlateMap() {
+            return cabinetPlateMap;
+        }
+
+        /**
+         * @return the decoded data, null if it couldn't be decoded
+         */
+        public CabinetPlateMapData getPlateMapData() {
+            return plateMapData;
+        }
+
+        /**
+         * @return why the data couldn't be decoded, null if it was
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        public boolean isDecoded() {
+            return error == null;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.platemap;
+
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.format.DateTimeFormatter;
+import java.util.Objects;
+
+/**
+ * Hashes the text of {@code CabinetPlateMap.prepareStringForChecksum()}, encoded as UTF-8, without building it. The
+ * status, the ISO formatted {@code lastModified} and the activity name are read together with the data through a view
+ * rather than concatenated, and encoded into the {@code MessageDigest} a buffer at a time, so a large {@code data}
+ * isn't copied into a second string (nor into a byte array) to be hashed.
+ */
+public final class CabinetPlateMapChecksum {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private CabinetPlateMapChecksum() {
+    }
+
+    /**
+     * @param cabinetPlateMap the plate map, which must have a status and a lastModified
+     * @param algorithm       the name of a {@code MessageDigest} algorithm, e.g. SHA-256
+     * @return the digest as lower case hex
+     * @throws IllegalArgumentException if the algorithm isn't available
+     */
+    public static String checksum(CabinetPlateMap cabinetPlateMap, String algorithm) {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("No MessageDigest for " + algorithm, e);
+        }
+        return toHex(digest(cabinetPlateMap, messageDigest));
+    }
+
+    /**
+     * @param cabinetPlateMap the plate map, which must have a status and a lastModified
+     * @param messageDigest   the digest to update, which is reset afterwards
+     * @return the digest
+     */
+    public static byte[] digest(CabinetPlateMap cabinetPlateMap, MessageDigest messageDigest) {
+        Objects.requireNonNull(cabinetPlateMap.getStatus(), "status is needed for the checksum");
+        Objects.requireNonNull(cabinetPlateMap.getLastModified(), "lastModified is needed for the checksum");
+
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        //the fields before data are short, String.valueOf gives "null" for a missing activityName or data as the
+        //concatenation does
+        String prefix = cabinetPlateMap.getStatus().toString()
+                + cabinetPlateMap.getLastModified().format(DateTimeFormatter.ISO_DATE_TIME)
+                + cabinetPlateMap.getActivityName();
+        CharSequence data = cabinetPlateMap.getDataContent();
+        CharBuffer chars = CharBuffer.wrap(new Concatenation(prefix, data == null ? "null" : data));
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        while (encoder.encode(chars, buffer, true) == CoderResult.OVERFLOW) {
+            drain(messageDigest, buffer);
+        }
+        while (encoder.flush(buffer) == CoderResult.OVERFLOW) {
+            drain(messageDigest, buffer);
+        }
+        drain(messageDigest, buffer);
+        return messageDigest.digest();
+    }
+
+    private static void drain(MessageDigest messageDigest, ByteBuffer buffer) {
+        buffer.flip();
+        messageDigest.update(buffer);
+        buffer.clear();
+    }
+
+    static String toHex(byte[] digest) {
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Two char sequences read as one, so they are encoded as the concatenated string would be (e.g. a surrogate pair
+     * split between them) without being copied
+     */
+    private static final class Concatenation implements CharSequence {
+
+        private final CharSequence first;
+        private final CharSequence second;
+
+        private Concatenation(CharSequence first, CharSequence second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public int length() {
+            return first.length() + second.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return index < first.length() ? first.charAt(index) : second.charAt(index - first.length());
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (end <= first.length()) {
+                return first.subSequence(start, end);
+            }
+            if (start >= first.length()) {
+                return second.subSequence(start - first.length(), end - first.length());
+            }
+            return new Concatenation(first.subSequence(start, first.length()), second.subSequence(0, end - first.length()));
+        }
+
+        @Override
+        public String toString() {
+            return first.toString() + second;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.platemap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and writes the {@code data} of a {@code CabinetPlateMap}, the plate map JSON gzipped and then base64 encoded.
+ * <p>
+ * The decoding streams work straight off the base64 {@code String}: characters are base64 decoded and inflated a
+ * buffer at a time as the stream is read, so neither the decoded gzip bytes nor the plate map JSON are held in memory
+ * as a whole. Nothing is decoded until the first read, so opening a stream is cheap and a malformed {@code data} only
+ * fails once it is read.
+ */
+public final class CabinetPlateMapCodec {
+
+    static final int BUFFER_SIZE = 8192;
+
+    private CabinetPlateMapCodec() {
+    }
+
+    /**
+     * Opens a stream of the plate map JSON held in {@code data}
+     *
+     * @param data the gzip - base64 encoded data, may be null
+     * @return the decoded plate map JSON, empty if {@code data} is null
+     */
+    public static InputStream openStream(CharSequence data) {
+        if (data == null) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        return new LazyInflatingInputStream(base64Bytes(data));
+    }
+
+    /**
+     * Opens a stream of the plate map JSON held in {@code data} that inflates with the given {@code Inflater} and
+     * reads through the given buffer, so a thread decoding many plate maps can reuse them instead of allocating (and
+     * freeing the native memory of) an {@code Inflater} per plate map. Closing the stream resets the inflater, it is
+     * never ended.
+     *
+     * @param data     the gzip - base64 encoded data, may be null
+     * @param inflater an inflater for raw deflate data ({@code new Inflater(true)}), used by one stream at a time
+     * @param buffer   the buffer compressed bytes are read into, used by one stream at a time
+     * @return the decoded plate map JSON, empty if {@code data} is null
+     */
+    public static InputStream openStream(CharSequence data, Inflater inflater, byte[] buffer) {
+        if (data == null) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        return new GzipInflatingInputStream(Base64.getMimeDecoder().wrap(base64Bytes(data)), inflater, buffer);
+    }
+
+    static InputStream base64Bytes(CharSequence data) {
+        return data instanceof CabinetPlateMapSpill ? ((CabinetPlateMapSpill) data).openStream()
+                : new CharSequenceInputStream(data);
+    }
+
+    /**
+     * Opens a channel of the plate map JSON held in {@code data}
+     *
+     * @param data the gzip - base64 encoded data, may be null
+     * @return the decoded plate map JSON, empty if {@code data} is null
+     */
+    public static ReadableByteChannel openChannel(CharSequence data) {
+        return Channels.newChannel(openStream(data));
+    }
+
+    /**
+     * Gzips and base64 encodes plate map JSON
+     *
+     * @param json the plate map JSON
+     * @return the encoded data
+     */
+    public static String encode(byte[] json) {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (OutputStream outputStream = openEncoder(encoded)) {
+            outputStream.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new String(encoded.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Opens a stream that gzips and base64 encodes what is written to it onto {@code encoded}. Closing the stream
+     * finishes the encoding and closes {@code encoded}.
+     *
+     * @param encoded receives the base64 characters as ASCII bytes
+     * @return the stream to write the plate map JSON to
+     * @throws IOException if the gzip header can't be written
+     */
+    public static OutputStream openEncoder(OutputStream encoded) throws IOException {
+        return new GZIPOutputStream(Base64.getEncoder().wrap(encoded), BUFFER_SIZE);
+    }
+
+    /**
+     * Decodes the base64 characters and inflates them, the gzip stream (which reads the gzip header when it is
+     * created) is only opened by the first read.
+     */
+    private static final class LazyInflatingInputStream extends InputStream {
+
+        private final InputStream base64;
+        private InputStream inflater;
+
+        private LazyInflatingInputStream(InputStream base64) {
+            this.base64 = base64;
+        }
+
+        private InputStream inflater() throws IOException {
+            if (inflater == null) {
+                //the MIME decoder skips line breaks that some encoders insert
+                inflater = new GZIPInputStream(Base64.getMimeDecoder().wrap(base64), BUFFER_SIZE);
+            }
+            return inflater;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return inflater().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return inflater().read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return inflater().skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return inflater == null ? 0 : inflater.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (inflater != null) {
+                inflater.close();
+            }
+        }
+    }
+
+    /**
+     * The characters of a {@code CharSequence} as bytes, without copying them, for base64 text which is all ASCII
+     */
+    static final class CharSequenceInputStream extends InputStream {
+
+        private final CharSequence chars;
+        private int position;
+
+        CharSequenceInputStream(CharSequence chars) {
+            this.chars = chars;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return position < chars.length() ? toByte(chars.charAt(position++)) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int count = Math.min(len, chars.length() - position);
+            if (count <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < count; i++) {
+                b[off + i] = (byte) toByte(chars.charAt(position++));
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, chars.length() - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return chars.length() - position;
+        }
+
+        private static int toByte(char c) throws IOException {
+            if (c > 0x7F) {
+                throw new IOException("Plate map data is not base64, found '" + c + "'");
+            }
+            return c;
+        }
+    }
+}
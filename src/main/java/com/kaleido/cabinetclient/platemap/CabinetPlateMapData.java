@@ -0,0 +1,500 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.platemap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The plate map held in the {@code data} of a {@code CabinetPlateMap}, laid out in flat primitive arrays rather than
+ * nested maps. The plate map JSON has the form
+ * <pre>
+ * {"plates": [{"rows": 8, "columns": 12,
+ *              "wells": [{"row": 0, "column": 0, "components": [{"id": "C1", "concentration": 0.5}]}]}]}
+ * </pre>
+ * Wells are numbered plate by plate and row by row, and the components of all wells are stored one after the other
+ * in well order, so the components of a well are a slice of the {@code componentIds} and {@code concentrations}
+ * arrays. Component ids are interned into a dictionary and stored as indexes into it. Wells that aren't listed have no
+ * components, a component without a concentration has {@code NaN}, and fields other than these are ignored.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class CabinetPlateMapData {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final int[] rows;
+    private final int[] columns;
+    //the index of the first well of each plate, with the total number of wells at the end
+    private final int[] wellOffsets;
+    //the index of the first component of each well, with the total number of components at the end
+    private final int[] componentOffsets;
+    private final int[] componentIds;
+    private final double[] concentrations;
+    private final String[] dictionary;
+    private final Map<String, Integer> dictionaryIndexes;
+
+    private CabinetPlateMapData(int[] rows, int[] columns, int[] wellOffsets, int[] componentOffsets,
+                                int[] componentIds, double[] concentrations, String[] dictionary,
+                                Map<String, Integer> dictionaryIndexes) {
+        this.rows = rows;
+        this.columns = columns;
+        this.wellOffsets = wellOffsets;
+        this.componentOffsets = componentOffsets;
+        this.componentIds = componentIds;
+        this.concentrations = concentrations;
+        this.dictionary = dictionary;
+        this.dictionaryIndexes = dictionaryIndexes;
+    }
+
+    /**
+     * Decodes the {@code data} of a plate map
+     *
+     * @param cabinetPlateMap the plate map
+     * @return the decoded plate map, with no plates if there is no data
+     */
+    public static CabinetPlateMapData decode(CabinetPlateMap cabinetPlateMap) {
+        if (cabinetPlateMap.getDataContent() == null) {
+            return builder().build();
+        }
+        try (InputStream inputStream = cabinetPlateMap.openDataStream()) {
+            return read(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads plate map JSON, as it is streamed rather than parsed into a tree first
+     *
+     * @param json the plate map JSON, which is not closed
+     * @return the plate map
+     * @throws IOException if the JSON can't be read or isn't a plate map
+     */
+    public static CabinetPlateMapData read(InputStream json) throws IOException {
+        Builder builder = builder();
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                JsonToken value = parser.nextToken();
+                if ("plates".equals(parser.getCurrentName())) {
+                    expect(parser, value, JsonToken.START_ARRAY);
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        readPlate(parser, builder);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static void readPlate(JsonParser parser, Builder builder) throws IOException {
+        //the dimensions may come after the wells
+        int plate = builder.plate(0, 0);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("rows".equals(field)) {
+                builder.rows[plate] = parser.getIntValue();
+            } else if ("columns".equals(field)) {
+                builder.columns[plate] = parser.getIntValue();
+            } else if ("wells".equals(field)) {
+                expect(parser, value, JsonToken.START_ARRAY);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readWell(parser, builder, plate);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readWell(JsonParser parser, Builder builder, int plate) throws IOException {
+        int row = -1;
+        int column = -1;
+        int firstComponent = builder.size;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("row".equals(field)) {
+                row = parser.getIntValue();
+            } else if ("column".equals(field)) {
+                column = parser.getIntValue();
+            } else if ("components".equals(field)) {
+                expect(parser, value, JsonToken.START_ARRAY);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readComponent(parser, builder, plate);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (row < 0 || column < 0) {
+            throw new IOException("Plate map well without a row and column at " + parser.getCurrentLocation());
+        }
+        //the position may come after the components
+        for (int component = firstComponent; component < builder.size; component++) {
+            builder.positions[component * 3 + 1] = row;
+            builder.positions[component * 3 + 2] = column;
+        }
+    }
+
+    private static void readComponent(JsonParser parser, Builder builder, int plate) throws IOException {
+        String id = null;
+        double concentration = Double.NaN;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("id".equals(field)) {
+                id = parser.getValueAsString();
+            } else if ("concentration".equals(field)) {
+                concentration = parser.getValueAsDouble(Double.NaN);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (id == null) {
+            throw new IOException("Plate map component without an id at " + parser.getCurrentLocation());
+        }
+        builder.component(plate, 0, 0, id, concentration);
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " in plate map data but found " + actual + " at "
+                    + parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * Encodes the plate map into the gzip - base64 form of {@code CabinetPlateMap.data}
+     *
+     * @return the encoded data
+     */
+    public String encode() {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (OutputStream outputStream = CabinetPlateMapCodec.openEncoder(encoded)) {
+            write(outputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new String(encoded.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes the plate map JSON, listing only the wells that have components
+     *
+     * @param outputStream receives the JSON, and is not closed
+     * @throws IOException if the JSON can't be written
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("plates");
+            for (int plate = 0; plate < getNumPlates(); plate++) {
+                generator.writeStartObject();
+                generator.writeNumberField("rows", rows[plate]);
+                generator.writeNumberField("columns", columns[plate]);
+                generator.writeArrayFieldStart("wells");
+                for (int well = wellOffsets[plate]; well < wellOffsets[plate + 1]; well++) {
+                    if (componentOffsets[well] == componentOffsets[well + 1]) {
+                        continue;
+                    }
+                    int position = well - wellOffsets[plate];
+                    generator.writeStartObject();
+                    generator.writeNumberField("row", position / columns[plate]);
+                    generator.writeNumberField("column", position % columns[plate]);
+                    generator.writeArrayFieldStart("components");
+                    for (int component = componentOffsets[well]; component < componentOffsets[well + 1]; component++) {
+                        generator.writeStartObject();
+                        generator.writeStringField("id", dictionary[componentIds[component]]);
+                        if (!Double.isNaN(concentrations[component])) {
+                            generator.writeNumberField("concentration", concentrations[component]);
+                        }
+                        generator.writeEndObject();
+                    }
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    public int getNumPlates() {
+        return rows.length;
+    }
+
+    public int getRows(int plate) {
+        return rows[plate];
+    }
+
+    public int getColumns(int plate) {
+        return columns[plate];
+    }
+
+    /**
+     * @return the number of wells across all plates
+     */
+    public int getNumWells() {
+        return wellOffsets[wellOffsets.length - 1];
+    }
+
+    /**
+     * @return the number of components across all wells
+     */
+    public int getNumComponents() {
+        return componentIds.length;
+    }
+
+    /**
+     * @return the distinct component ids, the dictionary that {@code getComponentIndex} indexes
+     */
+    public List<String> getComponentIds() {
+        return Collections.unmodifiableList(Arrays.asList(dictionary));
+    }
+
+    /**
+     * @param componentId a component id
+     * @return the index of the component id in the dictionary, or -1 if no well holds the component
+     */
+    public int getComponentIndex(String componentId) {
+        Integer index = dictionaryIndexes.get(componentId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param plate  the plate, from 0
+     * @param row    the row, from 0
+     * @param column the column, from 0
+     * @return the index of the well across all plates
+     * @throws IndexOutOfBoundsException if there is no such well
+     */
+    public int wellIndex(int plate, int row, int column) {
+        if (row < 0 || row >= rows[plate] || column < 0 || column >= columns[plate]) {
+            throw new IndexOutOfBoundsException("No well at row " + row + ", column " + column + " of plate " + plate);
+        }
+        return wellOffsets[plate] + row * columns[plate] + column;
+    }
+
+    /**
+     * @param well the index of a well, see {@code wellIndex}
+     * @return the number of components in the well
+     */
+    public int getComponentCount(int well) {
+        return componentOffsets[well + 1] - componentOffsets[well];
+    }
+
+    /**
+     * @param well      the index of a well, see {@code wellIndex}
+     * @param component the component of the well, from 0
+     * @return the component id
+     */
+    public String getComponentId(int well, int component) {
+        return dictionary[componentIds[component(well, component)]];
+    }
+
+    /**
+     * @param well      the index of a well, see {@code wellIndex}
+     * @param component the component of the well, from 0
+     * @return the concentration, or {@code NaN} if there is none
+     */
+    public double getConcentration(int well, int component) {
+        return concentrations[component(well, component)];
+    }
+
+    /**
+     * @param well        the index of a well, see {@code wellIndex}
+     * @param componentId a component id
+     * @return the concentration of the component in the well, or {@code NaN} if the well doesn't hold it
+     */
+    public double getConcentration(int well, String componentId) {
+        int index = getComponentIndex(componentId);
+        for (int component = componentOffsets[well]; index >= 0 && component < componentOffsets[well + 1]; component++) {
+            if (componentIds[component] == index) {
+                return concentrations[component];
+            }
+        }
+        return Double.NaN;
+    }
+
+    private int component(int well, int component) {
+        if (component < 0 || component >= getComponentCount(well)) {
+            throw new IndexOutOfBoundsException("Well " + well + " has no component " + component);
+        }
+        return componentOffsets[well] + component;
+    }
+
+    /**
+     * Visits every component of every well in well order, without creating an object per well
+     *
+     * @param visitor receives the components
+     */
+    public void forEachComponent(ComponentVisitor visitor) {
+        for (int plate = 0; plate < getNumPlates(); plate++) {
+            for (int well = wellOffsets[plate]; well < wellOffsets[plate + 1]; well++) {
+                int position = well - wellOffsets[plate];
+                for (int component = componentOffsets[well]; component < componentOffsets[well + 1]; component++) {
+                    visitor.visit(plate, position / columns[plate], position % columns[plate],
+                            dictionary[componentIds[component]], concentrations[component]);
+                }
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Receives the components of a plate map
+     */
+    @FunctionalInterface
+    public interface ComponentVisitor {
+        void visit(int plate, int row, int column, String componentId, double concentration);
+    }
+
+    /**
+     * Collects plates and components in any order, {@code build} sorts the components into well order
+     */
+    public static final class Builder {
+
+        private int[] rows = new int[4];
+        private int[] columns = new int[4];
+        private int numPlates;
+
+        //plate, row and column of each component
+        private int[] positions = new int[96 * 3];
+        private int[] ids = new int[96];
+        private double[] concentrations = new double[96];
+        private int size;
+
+        private final Map<String, Integer> dictionaryIndexes = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a plate
+         *
+         * @param rows    the number of rows
+         * @param columns the number of columns
+         * @return the index of the plate
+         */
+        public int plate(int rows, int columns) {
+            if (numPlates == this.rows.length) {
+                this.rows = Arrays.copyOf(this.rows, numPlates * 2);
+                this.columns = Arrays.copyOf(this.columns, numPlates * 2);
+            }
+            this.rows[numPlates] = rows;
+            this.columns[numPlates] = columns;
+            return numPlates++;
+        }
+
+        /**
+         * Adds a component to a well, a well can hold any number of components
+         *
+         * @param plate         the plate, from 0
+         * @param row           the row, from 0
+         * @param column        the column, from 0
+         * @param componentId   the component id
+         * @param concentration the concentration, or {@code NaN} if there is none
+         * @return this builder
+         */
+        public Builder component(int plate, int row, int column, String componentId, double concentration) {
+            if (size == ids.length) {
+                positions = Arrays.copyOf(positions, size * 6);
+                ids = Arrays.copyOf(ids, size * 2);
+                concentrations = Arrays.copyOf(concentrations, size * 2);
+            }
+            Integer id = dictionaryIndexes.get(componentId);
+            if (id == null) {
+                id = dictionary.size();
+                dictionaryIndexes.put(componentId, id);
+                dictionary.add(componentId);
+            }
+            positions[size * 3] = plate;
+            positions[size * 3 + 1] = row;
+            positions[size * 3 + 2] = column;
+            ids[size] = id;
+            concentrations[size] = concentration;
+            size++;
+            return this;
+        }
+
+        /**
+         * @return the plate map
+         * @throws IllegalArgumentException if a component lies outside its plate
+         */
+        public CabinetPlateMapData build() {
+            int[] plateRows = Arrays.copyOf(rows, numPlates);
+            int[] plateColumns = Arrays.copyOf(columns, numPlates);
+            int[] wellOffsets = new int[numPlates + 1];
+            for (int plate = 0; plate < numPlates; plate++) {
+                if (plateRows[plate] < 0 || plateColumns[plate] < 0) {
+                    throw new IllegalArgumentException("Plate " + plate + " has a negative number of rows or columns");
+                }
+                wellOffsets[plate + 1] = wellOffsets[plate] + plateRows[plate] * plateColumns[plate];
+            }
+
+            //a counting sort of the components by well, keeping the order of the components within a well
+            int[] wells = new int[size];
+            int[] componentOffsets = new int[wellOffsets[numPlates] + 1];
+            for (int component = 0; component < size; component++) {
+                wells[component] = well(component, plateRows, plateColumns, wellOffsets);
+                componentOffsets[wells[component] + 1]++;
+            }
+            for (int well = 0; well < componentOffsets.length - 1; well++) {
+                componentOffsets[well + 1] += componentOffsets[well];
+            }
+            int[] next = Arrays.copyOf(componentOffsets, componentOffsets.length - 1);
+            int[] sortedIds = new int[size];
+            double[] sortedConcentrations = new double[size];
+            for (int component = 0; component < size; component++) {
+                int index = next[wells[component]]++;
+                sortedIds[index] = ids[component];
+                sortedConcentrations[index] = concentrations[component];
+            }
+
+            return new CabinetPlateMapData(plateRows, plateColumns, wellOffsets, componentOffsets, sortedIds,
+                    sortedConcentrations, dictionary.toArray(new String[0]), new HashMap<>(dictionaryIndexes));
+        }
+
+        private int well(int component, int[] plateRows, int[] plateColumns, int[] wellOffsets) {
+            int plate = positions[component * 3];
+            int row = positions[component * 3 + 1];
+            int column = positions[component * 3 + 2];
+            if (plate < 0 || plate >= numPlates || row < 0 || row >= plateRows[plate]
+                    || column < 0 || column >= plateColumns[plate]) {
+                throw new IllegalArgumentException("Component " + dictionary.get(ids[component]) + " is at row " + row
+                        + ", column " + column + " of plate " + plate + " which isn't on the plate map");
+            }
+            return wellOffsets[plate] + row * plateColumns[plate] + column;
+        }
+    }
+}
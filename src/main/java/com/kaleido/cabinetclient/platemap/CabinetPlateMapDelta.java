@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.platemap;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.kaleido.cabinetclient.domain.enumeration.Status;
+
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The wells of a draft plate map that changed since the draft it is based on, identified by the {@code checksum} of
+ * that draft. A changed well carries all of its components, a well with none was cleared. Together with the plate
+ * map's other fields it is the body of a delta save, so the size of the request follows the size of the edit rather
+ * than the size of the plate map.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CabinetPlateMapDelta implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+
+    private Status status;
+
+    private ZonedDateTime lastModified;
+
+    /**
+     * The checksum of the draft the delta applies to
+     */
+    private String checksum;
+
+    private String activityName;
+
+    private Integer numPlates;
+
+    private List<Well> wells = new ArrayList<>();
+
+    /**
+     * Lists the wells of {@code updated} whose components differ from those of {@code base}
+     *
+     * @param base    the plate map the delta applies to
+     * @param updated the changed plate map
+     * @return the changed wells, or null if the plates themselves changed (their number or size) and the whole plate
+     * map has to be sent
+     */
+    public static CabinetPlateMapDelta diff(CabinetPlateMapData base, CabinetPlateMapData updated) {
+        if (base.getNumPlates() != updated.getNumPlates()) {
+            return null;
+        }
+        for (int plate = 0; plate < base.getNumPlates(); plate++) {
+            if (base.getRows(plate) != updated.getRows(plate) || base.getColumns(plate) != updated.getColumns(plate)) {
+                return null;
+            }
+        }
+
+        CabinetPlateMapDelta delta = new CabinetPlateMapDelta();
+        for (int plate = 0; plate < updated.getNumPlates(); plate++) {
+            for (int row = 0; row < updated.getRows(plate); row++) {
+                for (int column = 0; column < updated.getColumns(plate); column++) {
+                    int well = updated.wellIndex(plate, row, column);
+                    if (!sameComponents(base, updated, well)) {
+                        delta.wells.add(new Well(plate, row, column, components(updated, well)));
+                    }
+                }
+            }
+        }
+        return delta;
+    }
+
+    private static boolean sameComponents(CabinetPlateMapData base, CabinetPlateMapData updated, int well) {
+        int count = updated.getComponentCount(well);
+        if (base.getComponentCount(well) != count) {
+            return false;
+        }
+        for (int component = 0; component < count; component++) {
+            //the models intern ids into different dictionaries
+            if (!base.getComponentId(well, component).equals(updated.getComponentId(well, component))
+                    || Double.compare(base.getConcentration(well, component), updated.getConcentration(well, component)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Component> components(CabinetPlateMapData plateMapData, int well) {
+        List<Component> components = new ArrayList<>(plateMapData.getComponentCount(well));
+        for (int component = 0; component < plateMapData.getComponentCount(well); component++) {
+            double concentration = plateMapData.getConcentration(well, component);
+            components.add(new Component(plateMapData.getComponentId(well, component),
+                    Double.isNaN(concentration) ? null : concentration));
+        }
+        return components;
+    }
+
+    /**
+     * Applies the delta, which is what Cabinet does with it
+     *
+     * @param base the plate map the delta applies to
+     * @return the changed plate map
+     * @throws IllegalArgumentException if a well of the delta isn't on the plate map
+     */
+    public CabinetPlateMapData apply(CabinetPlateMapData base) {
+        CabinetPlateMapData.Builder builder = CabinetPlateMapData.builder();
+        Map<Integer, Well> changed = new HashMap<>();
+        for (int plate = 0; plate < base.getNumPlates(); plate++) {
+            builder.plate(base.getRows(plate), base.getColumns(plate));
+        }
+        for (Well well : wells) {
+            if (well.plate < 0 || well.plate >= base.getNumPlates()) {
+                throw new IllegalArgumentException("Plate " + well.plate + " isn't on the plate map");
+            }
+            changed.put(base.wellIndex(well.plate, well.row, well.column), well);
+        }
+        base.forEachComponent((plate, row, column, componentId, concentration) -> {
+            if (!changed.containsKey(base.wellIndex(plate, row, column))) {
+                builder.component(plate, row, column, componentId, concentration);
+            }
+        });
+        for (Well well : changed.values()) {
+            for (Component component : well.components) {
+                builder.component(well.plate, well.row, well.column, component.id,
+                        component.concentration == null ? Double.NaN : component.concentration);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return true if no well changed
+     */
+    @JsonIgnore
+    public boolean isEmpty() {
+        return wells.isEmpty();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public ZonedDateTime getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(ZonedDateTime lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public String getActivityName() {
+        return activityName;
+    }
+
+    public void setActivityName(String activityName) {
+        this.activityName = activityName;
+    }
+
+    public Integer getNumPlates() {
+        return numPlates;
+    }
+
+    public void setNumPlates(Integer numPlates) {
+        this.numPlates = numPlates;
+    }
+
+    public List<Well> getWells() {
+        return wells;
+    }
+
+    public void setWells(List<Well> wells) {
+        this.wells = wells;
+    }
+
+    @Override
+    public String toString() {
+        return "CabinetPlateMapDelta{" +
+                "id=" + getId() +
+                ", checksum='" + getChecksum() + "'" +
+                ", wells=" + wells.size() +
+                "}";
+    }
+
+    /**
+     * A well and all of its components after the change
+     */
+    public static class Well implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private int plate;
+        private int row;
+        private int column;
+        private List<Component> components = new ArrayList<>();
+
+        public Well() {
+        }
+
+        public Well(int plate, int row, int column, List<Component> components) {
+            this.plate = plate;
+            this.row = row;
+            this.column = column;
+            this.components = components;
+        }
+
+        public int getPlate() {
+            return plate;
+        }
+
+        public void setPlate(int plate) {
+            this.plate = plate;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public void setRow(int row) {
+            this.row = row;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        public void setColumn(int column) {
+            this.column = column;
+        }
+
+        public List<Component> getComponents() {
+            return components;
+        }
+
+        public void setComponents(List<Component> components) {
+            this.components = components;
+        }
+    }
+
+    /**
+     * A component of a well, the concentration is null if there is none
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Component implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String id;
+        private Double concentration;
+
+        public Component() {
+        }
+
+        public Component(String id, Double concentration) {
+            this.id = id;
+            this.concentration = concentration;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public Double getConcentration() {
+            return concentration;
+        }
+
+        public void setConcentration(Double concentration) {
+            this.concentration = concentration;
+        }
+    }
+}
@@ -0,0 +1,470 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.platemap;
+
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Reads and writes the {@code data} of a {@code CabinetPlateMap} with a chosen deflate level and, optionally, a preset
+ * dictionary.
+ * <p>
+ * Plate map JSON repeats the same keys and component ids in every plate map, and deflate has to learn them anew at the
+ * start of each one. A dictionary trained on sample plate maps with {@link #trainDictionary(Collection, int)} gives it
+ * those strings up front, which matters most for small plate maps. By default the codec writes plain gzip - base64
+ * like {@code CabinetPlateMapCodec}, only at its own level, and only reads with its dictionary. With dictionary writes
+ * enabled it writes a zlib stream that names the dictionary by its Adler-32 checksum. Nothing else can read that,
+ * not {@code CabinetPlateMap.openDataStream()}, {@code CabinetPlateMapData.decode} nor Cabinet, only a codec holding
+ * the same dictionary, so it must never be saved to a plate map that anything else reads.
+ * <p>
+ * Reading tells the two formats apart by their first bytes, so plain gzip - base64 data is always read, whichever
+ * dictionary the codec has. A codec is immutable and thread safe.
+ */
+public final class CabinetPlateMapDictionaryCodec {
+
+    /**
+     * The largest useful dictionary, deflate only looks back 32K
+     */
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    private static final int GZIP_MAGIC_FIRST_BYTE = 0x1f;
+    private static final int GZIP_MAGIC_SECOND_BYTE = 0x8b;
+
+    //dictionary training looks for 32 byte segments that cover the most frequent 8 byte strings
+    private static final int SEGMENT_SIZE = 32;
+    private static final int DMER_SIZE = 8;
+    private static final int MAX_TRAINING_BYTES = 8 * 1024 * 1024;
+
+    private final int level;
+    private final byte[] dictionary;
+    private final long dictionaryId;
+    private final boolean dictionaryWritesEnabled;
+
+    /**
+     * A codec that writes plain gzip - base64 and reads data written with the dictionary as well
+     *
+     * @param level      the deflate level, from {@code Deflater.BEST_SPEED} (1) to {@code Deflater.BEST_COMPRESSION} (9),
+     *                   or {@code Deflater.DEFAULT_COMPRESSION} (-1)
+     * @param dictionary the preset dictionary, may be null
+     */
+    public CabinetPlateMapDictionaryCodec(int level, byte[] dictionary) {
+        this(level, dictionary, false);
+    }
+
+    /**
+     * @param level                   the deflate level, from {@code Deflater.BEST_SPEED} (1) to
+     *                                {@code Deflater.BEST_COMPRESSION} (9), or {@code Deflater.DEFAULT_COMPRESSION} (-1)
+     * @param dictionary              the preset dictionary, may be null
+     * @param dictionaryWritesEnabled true to write with the dictionary, in a format only this codec can read
+     */
+    public CabinetPlateMapDictionaryCodec(int level, byte[] dictionary, boolean dictionaryWritesEnabled) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("level must be between 0 and 9, or -1 for the default");
+        }
+        if (dictionary != null && dictionary.length > MAX_DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("dictionary must not be larger than " + MAX_DICTIONARY_SIZE + " bytes");
+        }
+        this.level = level;
+        this.dictionary = dictionary == null || dictionary.length == 0 ? null : dictionary.clone();
+        this.dictionaryId = this.dictionary == null ? 0 : adler32(this.dictionary);
+        this.dictionaryWritesEnabled = dictionaryWritesEnabled && this.dictionary != null;
+    }
+
+    /**
+     * Trains a preset dictionary on sample plate maps
+     *
+     * @param cabinetPlateMaps the samples, plate maps without data are left out
+     * @param size             the largest dictionary to return, at most {@link #MAX_DICTIONARY_SIZE}
+     * @return the dictionary
+     */
+    public static byte[] trainDictionary(List<CabinetPlateMap> cabinetPlateMaps, int size) {
+        List<byte[]> samples = new ArrayList<>();
+        for (CabinetPlateMap cabinetPlateMap : cabinetPlateMaps) {
+            if (cabinetPlateMap.getDataContent() != null) {
+                try (InputStream json = cabinetPlateMap.openDataStream()) {
+                    samples.add(readAll(json));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        return trainDictionary(samples, size);
+    }
+
+    /**
+     * Trains a preset dictionary on sample plate map JSON. The dictionary is made of the segments of the samples that
+     * hold the most frequent strings not already in it, the most frequent last, where deflate reaches them with the
+     * shortest distances. Only the first 8MB of samples are looked at.
+     *
+     * @param samples the plate map JSON of the samples
+     * @param size    the largest dictionary to return, at most {@link #MAX_DICTIONARY_SIZE}
+     * @return the dictionary, empty if the samples are too short to train on
+     */
+    public static byte[] trainDictionary(Collection<byte[]> samples, int size) {
+        if (size <= 0 || size > MAX_DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_DICTIONARY_SIZE);
+        }
+        List<byte[]> trainingSamples = new ArrayList<>();
+        int trainingBytes = 0;
+        for (byte[] sample : samples) {
+            if (trainingBytes + sample.length > MAX_TRAINING_BYTES) {
+                break;
+            }
+            trainingSamples.add(sample);
+            trainingBytes += sample.length;
+        }
+
+        Map<Long, Integer> frequencies = new HashMap<>();
+        for (byte[] sample : trainingSamples) {
+            for (int i = 0; i + DMER_SIZE <= sample.length; i++) {
+                frequencies.merge(dmer(sample, i), 1, Integer::sum);
+            }
+        }
+
+        //lazy greedy: a segment's score only drops as the dictionary grows, so it is rescored when it reaches the top
+        Set<Long> covered = new HashSet<>();
+        PriorityQueue<Segment> segments = new PriorityQueue<>();
+        for (byte[] sample : trainingSamples) {
+            for (int start = 0; start + SEGMENT_SIZE <= sample.length; start += DMER_SIZE / 2) {
+                Segment segment = new Segment(sample, start);
+                segment.score = segment.score(frequencies, covered);
+                if (segment.score > 0) {
+                    segments.add(segment);
+                }
+            }
+        }
+
+        List<Segment> chosen = new ArrayList<>();
+        int length = 0;
+        while (!segments.isEmpty() && length + SEGMENT_SIZE <= size) {
+            Segment segment = segments.poll();
+            long score = segment.score(frequencies, covered);
+            if (score == 0) {
+                continue;
+            }
+            if (!segments.isEmpty() && score < segments.peek().score) {
+                segment.score = score;
+                segments.add(segment);
+                continue;
+            }
+            for (int i = segment.start; i + DMER_SIZE <= segment.start + SEGMENT_SIZE; i++) {
+                covered.add(dmer(segment.sample, i));
+            }
+            chosen.add(segment);
+            length += SEGMENT_SIZE;
+        }
+
+        byte[] trained = new byte[length];
+        int position = 0;
+        for (int i = chosen.size() - 1; i >= 0; i--) {
+            System.arraycopy(chosen.get(i).sample, chosen.get(i).start, trained, position, SEGMENT_SIZE);
+            position += SEGMENT_SIZE;
+        }
+        return trained;
+    }
+
+    private static long dmer(byte[] bytes, int offset) {
+        long dmer = 0;
+        for (int i = offset; i < offset + DMER_SIZE; i++) {
+            dmer = dmer << 8 | (bytes[i] & 0xFF);
+        }
+        return dmer;
+    }
+
+    /**
+     * Encodes plate map JSON
+     *
+     * @param json the plate map JSON
+     * @return the encoded data
+     */
+    public String encode(byte[] json) {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (OutputStream outputStream = openEncoder(encoded)) {
+            outputStream.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new String(encoded.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Encodes a plate map model
+     *
+     * @param plateMapData the plate map
+     * @return the encoded data
+     */
+    public String encode(CabinetPlateMapData plateMapData) {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (OutputStream outputStream = openEncoder(encoded)) {
+            plateMapData.write(outputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new String(encoded.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Opens a stream that compresses and base64 encodes what is written to it onto {@code encoded}. Closing the stream
+     * finishes the encoding and closes {@code encoded}.
+     *
+     * @param encoded receives the base64 characters as ASCII bytes
+     * @return the stream to write the plate map JSON to
+     * @throws IOException if the header can't be written
+     */
+    public OutputStream openEncoder(OutputStream encoded) throws IOException {
+        OutputStream base64 = Base64.getEncoder().wrap(encoded);
+        if (!dictionaryWritesEnabled) {
+            return new LevelGZIPOutputStream(base64, level);
+        }
+        Deflater deflater = new Deflater(level);
+        deflater.setDictionary(dictionary);
+        return new DeflaterOutputStream(base64, deflater, CabinetPlateMapCodec.BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Opens a stream of the plate map JSON held in {@code data}, which may be plain gzip - base64 or written with this
+     * codec's dictionary. Nothing is decoded until the first read.
+     *
+     * @param data the encoded data, may be null
+     * @return the decoded plate map JSON, empty if {@code data} is null
+     */
+    public InputStream openStream(CharSequence data) {
+        if (data == null) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        return new FormatDetectingInputStream(CabinetPlateMapCodec.base64Bytes(data));
+    }
+
+    /**
+     * Decodes the {@code data} of a plate map
+     *
+     * @param cabinetPlateMap the plate map
+     * @return the decoded plate map, with no plates if there is no data
+     */
+    public CabinetPlateMapData decode(CabinetPlateMap cabinetPlateMap) {
+        if (cabinetPlateMap.getDataContent() == null) {
+            return CabinetPlateMapData.builder().build();
+        }
+        try (InputStream inputStream = openStream(cabinetPlateMap.getDataContent())) {
+            return CabinetPlateMapData.read(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return true if data is written with the dictionary, which only a codec with the same dictionary can read
+     */
+    public boolean isDictionaryWritesEnabled() {
+        return dictionaryWritesEnabled;
+    }
+
+    /**
+     * @return a copy of the dictionary, null if there is none
+     */
+    public byte[] getDictionary() {
+        return dictionary == null ? null : dictionary.clone();
+    }
+
+    private static long adler32(byte[] bytes) {
+        Adler32 adler32 = new Adler32();
+        adler32.update(bytes, 0, bytes.length);
+        return adler32.getValue();
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[CabinetPlateMapCodec.BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A segment of a sample, scored by the frequencies of the strings in it that aren't in the dictionary yet
+     */
+    private static final class Segment implements Comparable<Segment> {
+        private final byte[] sample;
+        private final int start;
+        private long score;
+
+        private Segment(byte[] sample, int start) {
+            this.sample = sample;
+            this.start = start;
+        }
+
+        private long score(Map<Long, Integer> frequencies, Set<Long> covered) {
+            long total = 0;
+            Set<Long> counted = new HashSet<>();
+            for (int i = start; i + DMER_SIZE <= start + SEGMENT_SIZE; i++) {
+                Long dmer = dmer(sample, i);
+                if (!covered.contains(dmer) && counted.add(dmer)) {
+                    total += frequencies.get(dmer);
+                }
+            }
+            return total;
+        }
+
+        @Override
+        public int compareTo(Segment other) {
+            return Long.compare(other.score, score);
+        }
+    }
+
+    /**
+     * A gzip stream written at the given level
+     */
+    private static final class LevelGZIPOutputStream extends GZIPOutputStream {
+        private LevelGZIPOutputStream(OutputStream out, int level) throws IOException {
+            super(out, CabinetPlateMapCodec.BUFFER_SIZE);
+            def.setLevel(level);
+        }
+    }
+
+    /**
+     * Decodes the base64 characters and reads the first two bytes to choose between gzip and zlib, on the first read
+     */
+    private final class FormatDetectingInputStream extends InputStream {
+
+        private final InputStream base64;
+        private InputStream inflater;
+
+        private FormatDetectingInputStream(InputStream base64) {
+            this.base64 = base64;
+        }
+
+        private InputStream inflater() throws IOException {
+            if (inflater == null) {
+                //the MIME decoder skips line breaks that some encoders insert
+                PushbackInputStream compressed = new PushbackInputStream(Base64.getMimeDecoder().wrap(base64), 2);
+                int first = compressed.read();
+                int second = first == -1 ? -1 : compressed.read();
+                if (second == -1) {
+                    throw new ZipException("Plate map data is too short");
+                }
+                compressed.unread(new byte[]{(byte) first, (byte) second});
+                if (first == GZIP_MAGIC_FIRST_BYTE && second == GZIP_MAGIC_SECOND_BYTE) {
+                    inflater = new GZIPInputStream(compressed, CabinetPlateMapCodec.BUFFER_SIZE);
+                } else if ((first & 0x0F) == Deflater.DEFLATED && (first << 8 | second) % 31 == 0) {
+                    inflater = new DictionaryInflaterInputStream(compressed);
+                } else {
+                    throw new ZipException("Plate map data is neither gzip nor zlib");
+                }
+            }
+            return inflater;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return inflater().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return inflater().read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return inflater().skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return inflater == null ? 0 : inflater.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (inflater != null) {
+                inflater.close();
+            } else {
+                base64.close();
+            }
+        }
+    }
+
+    /**
+     * Inflates a zlib stream, giving the inflater the codec's dictionary when the stream asks for it
+     */
+    private final class DictionaryInflaterInputStream extends InflaterInputStream {
+
+        private DictionaryInflaterInputStream(InputStream in) {
+            super(in, new Inflater(), CabinetPlateMapCodec.BUFFER_SIZE);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            //InflaterInputStream reports a stream that needs a dictionary as ended
+            if (read == -1 && inf.needsDictionary()) {
+                if (dictionary == null || inf.getAdler() != dictionaryId) {
+                    throw new ZipException("Plate map data was written with a different dictionary");
+                }
+                inf.setDictionary(dictionary);
+                read = super.read(b, off, len);
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                inf.end();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CabinetPlateMapDictionaryCodec{" +
+                "level=" + level +
+                ", dictionary=" + (dictionary == null ? "none" : dictionary.length + " bytes, id " + Long.toHexString(dictionaryId)) +
+                ", dictionaryWritesEnabled=" + dictionaryWritesEnabled +
+                "}";
+    }
+}
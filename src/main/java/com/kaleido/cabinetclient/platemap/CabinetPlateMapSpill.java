@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.platemap;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBuilder;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The base64 {@code data} of a large plate map held in a memory-mapped temporary file instead of a {@code String},
+ * one byte per character rather than two and outside the Java heap. It is a {@code CharSequence}, so it can be used
+ * wherever the data is read as text; {@code CabinetPlateMapCodec} and the JSON serializer read it straight from the
+ * mapping. Only {@code toString()} (and so {@code CabinetPlateMap.getData()}) copies it onto the heap.
+ * <p>
+ * The file is deleted as soon as it is mapped where the operating system allows it, the space is given back once the
+ * spill is garbage collected. A spill is immutable and can be read by several threads at once. When a plate map is
+ * serialized with Java serialization its spill is written as a {@code String}.
+ * <p>
+ * Data is only spilled by object mappers that have the {@link #module(int, Path)} registered, such as the one of the
+ * {@code cabinetRestTemplate}; any other object mapper reads it into a {@code String}.
+ */
+public final class CabinetPlateMapSpill implements CharSequence, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient ByteBuffer buffer;
+
+    private CabinetPlateMapSpill(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Makes an object mapper spill the {@code data} of the plate maps it reads. Jackson creates the deserializer named
+     * by {@code CabinetPlateMap} itself, so the module swaps it for one with these settings as the plate map's
+     * deserializer is built.
+     *
+     * @param threshold the number of characters from which data is spilled, 0 to never spill
+     * @param directory where the temporary files are created, null for the default temporary directory
+     * @return the module to register on the object mapper
+     */
+    public static Module module(int threshold, Path directory) {
+        Deserializer deserializer = new Deserializer(threshold, directory);
+        SimpleModule module = new SimpleModule("CabinetPlateMapSpill");
+        module.setDeserializerModifier(new BeanDeserializerModifier() {
+            @Override
+            public BeanDeserializerBuilder updateBuilder(DeserializationConfig config, BeanDescription beanDesc,
+                                                         BeanDeserializerBuilder builder) {
+                List<SettableBeanProperty> spillable = new ArrayList<>();
+                for (Iterator<SettableBeanProperty> properties = builder.getProperties(); properties.hasNext(); ) {
+                    SettableBeanProperty property = properties.next();
+                    Object valueDeserializer = property.getValueDeserializer();
+                    if (valueDeserializer instanceof Deserializer) {
+                        spillable.add(property);
+                    }
+                }
+                for (SettableBeanProperty property : spillable) {
+                    builder.addOrReplaceProperty(property.withValueDeserializer(deserializer), true);
+                }
+                return builder;
+            }
+        });
+        return module;
+    }
+
+    /**
+     * Writes base64 characters to a temporary file and maps it
+     *
+     * @param chars     the characters, which must all be ASCII
+     * @param offset    the offset of the first character
+     * @param length    the number of characters
+     * @param directory where the file is created, null for the default temporary directory
+     * @return the spill
+     * @throws IOException              if the file can't be written or mapped
+     * @throws IllegalArgumentException if a character isn't ASCII
+     */
+    public static CabinetPlateMapSpill spill(char[] chars, int offset, int length, Path directory) throws IOException {
+        Path file = directory == null ? Files.createTempFile("cabinet-plate-map", ".b64")
+                : Files.createTempFile(directory, "cabinet-plate-map", ".b64");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.allocate(CabinetPlateMapCodec.BUFFER_SIZE);
+            for (int i = offset; i < offset + length; i++) {
+                char c = chars[i];
+                if (c > 0x7F) {
+                    throw new IllegalArgumentException("Plate map data is not base64, found '" + c + "'");
+                }
+                bytes.put((byte) c);
+                if (!bytes.hasRemaining()) {
+                    write(channel, bytes);
+                }
+            }
+            write(channel, bytes);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            return new CabinetPlateMapSpill(mapped);
+        } finally {
+            delete(file);
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer bytes) throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            //some platforms don't delete a mapped file
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * @return the characters as ASCII bytes, read without copying them
+     */
+    InputStream openStream() {
+        ByteBuffer bytes = buffer.duplicate();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return bytes.hasRemaining() ? bytes.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                }
+                if (!bytes.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(len, bytes.remaining());
+                bytes.get(b, off, count);
+                return count;
+            }
+
+            @Override
+            public long skip(long n) {
+                int skipped = (int) Math.max(0, Math.min(n, bytes.remaining()));
+                bytes.position(bytes.position() + skipped);
+                return skipped;
+            }
+
+            @Override
+            public int available() {
+                return bytes.remaining();
+            }
+        };
+    }
+
+    @Override
+    public int length() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+        }
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(start);
+        slice.limit(end);
+        return new CabinetPlateMapSpill(slice.slice());
+    }
+
+    /**
+     * @return the characters copied into a {@code String} on the heap
+     */
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[length()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private Object writeReplace() {
+        return toString();
+    }
+
+    /**
+     * Reads the {@code data} of a plate map as a {@code String}, or as a spill once it is at least {@code threshold}
+     * characters long. Jackson still holds the characters of the value while it is parsed, but they are spilled before
+     * any {@code String} is made of them. The deserializer Jackson creates from the annotation never spills, see
+     * {@link #module(int, Path)}.
+     */
+    public static class Deserializer extends StdDeserializer<CharSequence> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int threshold;
+        private final transient Path directory;
+
+        public Deserializer() {
+            this(0, null);
+        }
+
+        /**
+         * @param threshold the number of characters from which data is spilled, 0 to never spill
+         * @param directory where the temporary files are created, null for the default temporary directory
+         */
+        public Deserializer(int threshold, Path directory) {
+            super(CharSequence.class);
+            if (threshold < 0) {
+                throw new IllegalArgumentException("threshold must not be negative");
+            }
+            this.threshold = threshold;
+            this.directory = directory;
+        }
+
+        @Override
+        public CharSequence deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.getCurrentToken() != JsonToken.VALUE_STRING) {
+                return parser.getValueAsString();
+            }
+            if (threshold == 0 || parser.getTextLength() < threshold) {
+                return parser.getText();
+            }
+            try {
+                return spill(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(), directory);
+            } catch (IllegalArgumentException e) {
+                //not base64, kept as it is
+                return parser.getText();
+            }
+        }
+    }
+
+    /**
+     * Writes the {@code data} of a plate map, a spill straight from its mapping
+     */
+    public static class Serializer extends StdSerializer<CharSequence> {
+
+        private static final long serialVersionUID = 1L;
+
+        public Serializer() {
+            super(CharSequence.class);
+        }
+
+        @Override
+        public void serialize(CharSequence value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            if (value instanceof CabinetPlateMapSpill) {
+                CabinetPlateMapSpill spill = (CabinetPlateMapSpill) value;
+                generator.writeString(new InputStreamReader(spill.openStream(), StandardCharsets.US_ASCII), spill.length());
+            } else {
+                generator.writeString(value.toString());
+            }
+        }
+    }
+}
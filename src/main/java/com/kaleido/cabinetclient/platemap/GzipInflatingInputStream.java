@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.platemap;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Reads gzip data like {@code GZIPInputStream}, including concatenated members and checking each member's CRC and
+ * size, but inflates with an {@code Inflater} and input buffer it is given rather than ones of its own. The gzip
+ * header is only read by the first read.
+ */
+class GzipInflatingInputStream extends InputStream {
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final InputStream in;
+    private final Inflater inflater;
+    private final byte[] buffer;
+    private final CRC32 crc = new CRC32();
+    private final byte[] single = new byte[1];
+
+    //bytes of the buffer that were read but not inflated, e.g. the trailer after the end of a member
+    private int leftoverStart;
+    private int leftoverEnd;
+    private int inputLength;
+
+    private boolean started;
+    private boolean eof;
+
+    GzipInflatingInputStream(InputStream in, Inflater inflater, byte[] buffer) {
+        this.in = in;
+        this.inflater = inflater;
+        this.buffer = buffer;
+        inflater.reset();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (eof) {
+            return -1;
+        }
+        if (!started) {
+            startMember();
+            started = true;
+        }
+        try {
+            int inflated;
+            while ((inflated = inflater.inflate(b, off, len)) == 0) {
+                if (inflater.finished()) {
+                    if (!nextMember()) {
+                        eof = true;
+                        return -1;
+                    }
+                } else if (inflater.needsDictionary()) {
+                    throw new ZipException("Plate map data needs a preset dictionary");
+                } else if (inflater.needsInput()) {
+                    fill();
+                }
+            }
+            crc.update(b, off, inflated);
+            return inflated;
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage() == null ? "Invalid plate map data" : e.getMessage());
+        }
+    }
+
+    private void fill() throws IOException {
+        inputLength = in.read(buffer, 0, buffer.length);
+        if (inputLength == -1) {
+            throw new EOFException("Unexpected end of plate map data");
+        }
+        inflater.setInput(buffer, 0, inputLength);
+    }
+
+    private void startMember() throws IOException {
+        readHeader();
+        if (leftoverStart < leftoverEnd) {
+            inflater.setInput(buffer, leftoverStart, leftoverEnd - leftoverStart);
+            leftoverStart = leftoverEnd;
+        }
+    }
+
+    /**
+     * Checks the trailer of the member just inflated and starts the next one, if there is one
+     */
+    private boolean nextMember() throws IOException {
+        leftoverStart = inputLength - inflater.getRemaining();
+        leftoverEnd = inputLength;
+        long expectedCrc = readInt();
+        long expectedSize = readInt();
+        if (expectedCrc != crc.getValue() || expectedSize != (inflater.getBytesWritten() & 0xFFFFFFFFL)) {
+            throw new ZipException("Corrupt plate map data, the checksum or size doesn't match");
+        }
+
+        int next = readByteOrEnd();
+        if (next == -1) {
+            return false;
+        }
+        inflater.reset();
+        crc.reset();
+        //the first byte of the next header has been read already
+        if ((readUnsignedByte() << 8 | next) != GZIP_MAGIC) {
+            throw new ZipException("Plate map data is not in gzip format");
+        }
+        readHeaderAfterMagic();
+        if (leftoverStart < leftoverEnd) {
+            inflater.setInput(buffer, leftoverStart, leftoverEnd - leftoverStart);
+            leftoverStart = leftoverEnd;
+        }
+        return true;
+    }
+
+    private void readHeader() throws IOException {
+        if (readUnsignedShort() != GZIP_MAGIC) {
+            throw new ZipException("Plate map data is not in gzip format");
+        }
+        readHeaderAfterMagic();
+    }
+
+    private void readHeaderAfterMagic() throws IOException {
+        if (readUnsignedByte() != 8) {
+            throw new ZipException("Plate map data uses an unsupported compression method");
+        }
+        int flags = readUnsignedByte();
+        //modification time, extra flags and operating system
+        skip(6);
+        if ((flags & FEXTRA) == FEXTRA) {
+            skip(readUnsignedShort());
+        }
+        if ((flags & FNAME) == FNAME) {
+            while (readUnsignedByte() != 0) {
+                //skip the file name
+            }
+        }
+        if ((flags & FCOMMENT) == FCOMMENT) {
+            while (readUnsignedByte() != 0) {
+                //skip the comment
+            }
+        }
+        if ((flags & FHCRC) == FHCRC) {
+            skip(2);
+        }
+    }
+
+    private int readByteOrEnd() throws IOException {
+        if (leftoverStart < leftoverEnd) {
+            return buffer[leftoverStart++] & 0xFF;
+        }
+        return in.read();
+    }
+
+    private int readUnsignedByte() throws IOException {
+        int b = readByteOrEnd();
+        if (b == -1) {
+            throw new EOFException("Unexpected end of plate map data");
+        }
+        return b;
+    }
+
+    private int readUnsignedShort() throws IOException {
+        return readUnsignedByte() | readUnsignedByte() << 8;
+    }
+
+    private long readInt() throws IOException {
+        return ((long) readUnsignedShort()) | ((long) readUnsignedShort()) << 16;
+    }
+
+    private void skip(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readUnsignedByte();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        eof = true;
+        inflater.reset();
+        in.close();
+    }
+}
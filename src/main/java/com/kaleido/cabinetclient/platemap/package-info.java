@@ -0,0 +1,8 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+/**
+ * Reading and writing the gzip - base64 encoded {@code data} of {@code CabinetPlateMap}s.
+ */
+package com.kaleido.cabinetclient.platemap;
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class CabinetClientConfigurationTest {
+
+    private HttpServer server;
+    private URI uri;
+    private final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+    private CabinetClientConfiguration cabinetClientConfiguration;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/plate-maps/1", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] response = "{\"id\": 1}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        });
+        server.start();
+        uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/api/plate-maps/1");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        if (cabinetClientConfiguration != null) {
+            cabinetClientConfiguration.shutdownExecutor();
+        }
+    }
+
+    private ClientHttpRequestFactory requestFactory(CabinetClientProperties cabinetClientProperties) {
+        cabinetClientConfiguration = new CabinetClientConfiguration(cabinetClientProperties);
+        return cabinetClientConfiguration.cabinetClientHttpRequestFactory();
+    }
+
+    private String get(ClientHttpRequestFactory requestFactory) throws IOException {
+        try (ClientHttpResponse response = requestFactory.createRequest(uri, HttpMethod.GET).execute()) {
+            return StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void requestsArePooledByDefault() throws IOException {
+        CabinetClientProperties cabinetClientProperties = new CabinetClientProperties();
+        cabinetClientProperties.setMaxConnectionsTotal(7);
+        cabinetClientProperties.setMaxConnectionsPerRoute(3);
+
+        ClientHttpRequestFactory requestFactory = requestFactory(cabinetClientProperties);
+
+        assertTrue(requestFactory instanceof HttpComponentsClientHttpRequestFactory);
+        CloseableHttpClient httpClient = (CloseableHttpClient) ((HttpComponentsClientHttpRequestFactory) requestFactory).getHttpClient();
+        try {
+            PoolingHttpClientConnectionManager connectionManager =
+                    (PoolingHttpClientConnectionManager) ReflectionTestUtils.getField(httpClient, "connManager");
+            assertEquals(7, connectionManager.getMaxTotal());
+            assertEquals(3, connectionManager.getDefaultMaxPerRoute());
+
+            assertEquals("{\"id\": 1}", get(requestFactory));
+            assertEquals("{\"id\": 1}", get(requestFactory));
+
+            //the second request reused the connection of the first
+            assertEquals(2, clientPorts.size());
+            assertEquals(clientPorts.get(0), clientPorts.get(1));
+            assertEquals(1, connectionManager.getTotalStats().getAvailable());
+        } finally {
+            httpClient.close();
+        }
+    }
+
+    @Test
+    public void requestsOpenTheirOwnConnectionWhenPoolingIsDisabled() throws IOException {
+        CabinetClientProperties cabinetClientProperties = new CabinetClientProperties();
+        cabinetClientProperties.setConnectionPoolEnabled(false);
+
+        ClientHttpRequestFactory requestFactory = requestFactory(cabinetClientProperties);
+
+        assertTrue(requestFactory instanceof SimpleClientHttpRequestFactory);
+        assertEquals("{\"id\": 1}", get(requestFactory));
+    }
+}
@@ -28,7 +28,13 @@ import org.springframework.web.client.RestTemplate;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
@@ -154,6 +160,79 @@ public class CabinetJWTRequestInterceptorTest {
         authServer.verify();
     }
 
+    @Test
+    public void jwtTokenExpiredRefreshedOnceForConcurrentCallers() throws Exception {
+        cabinetUserCredentials.setBearerExpiry(FAKE_BEARER_EXPIRED);
+        String newToken = generateFakeBearerToken(FAKE_BEARER_NOT_EXPIRED);
+
+        authServer.expect(ExpectedCount.once(),
+                requestTo(CabinetClientProperties.getBase() + "authenticate"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess("{\"id_token\": \"" + newToken + "\"}", MediaType.APPLICATION_JSON));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> tokens = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                tokens.add(executor.submit(cabinetUserCredentials::getBearerToken));
+            }
+            for (Future<String> token : tokens) {
+                assertEquals(newToken, token.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertFalse(cabinetUserCredentials.hasTokenExpired());
+        authServer.verify();
+    }
+
+    @Test
+    public void jwtTokenRenewedInBackgroundBeforeExpiry() throws Exception {
+        String newToken = generateFakeBearerToken(FAKE_BEARER_NOT_EXPIRED.plusSeconds(60));
+        authServer.expect(ExpectedCount.once(),
+                requestTo(CabinetClientProperties.getBase() + "authenticate"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess("{\"id_token\": \"" + newToken + "\"}", MediaType.APPLICATION_JSON));
+
+        CabinetClientProperties renewalProperties = new CabinetClientProperties();
+        renewalProperties.setTokenRenewalJitter(0L);
+        renewalProperties.setRetryInterval(50L);
+        CabinetTokenRenewer cabinetTokenRenewer = new CabinetTokenRenewer(cabinetUserCredentials, renewalProperties);
+        cabinetTokenRenewer.start();
+        try {
+            //a token entering its buffer window should be renewed without any request asking for it
+            cabinetTokenRenewer.scheduleRenewal(FAKE_BEARER_IN_BUFFER);
+            long deadline = System.currentTimeMillis() + 5000L;
+            while (!FAKE_BEARER_NOT_EXPIRED.plusSeconds(60).equals(cabinetUserCredentials.getBearerExpiry())
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20L);
+            }
+        } finally {
+            cabinetTokenRenewer.stop();
+        }
+
+        assertEquals(FAKE_BEARER_NOT_EXPIRED.plusSeconds(60).getEpochSecond(), cabinetUserCredentials.getBearerExpiry().getEpochSecond());
+        authServer.verify();
+    }
+
+    @Test
+    public void jwtExpiryParsedFromUrlSafePayloadWithOtherClaims() {
+        cabinetUserCredentials.setBearerToken(null);
+        String payload = "{\"sub\":\"admin\",\"auth\":{\"roles\":[\"ROLE_USER\"],\"exp\":1},\"" +
+                CabinetUserCredentials.EXPIRY + "\":" + FAKE_BEARER_NOT_EXPIRED.getEpochSecond() + "}";
+        String newToken = "fake." + Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes()) + ".token";
+
+        authServer.expect(ExpectedCount.once(),
+                requestTo(CabinetClientProperties.getBase() + "authenticate"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess("{\"id_token\": \"" + newToken + "\"}", MediaType.APPLICATION_JSON));
+
+        assertEquals("Bearer " + newToken, cabinetUserCredentials.getAuthorizationHeader());
+        assertEquals(FAKE_BEARER_NOT_EXPIRED.getEpochSecond(), cabinetUserCredentials.getBearerExpiry().getEpochSecond());
+        authServer.verify();
+    }
+
     @Test
     public void jwtTokenShouldBeAddedToHeader() throws Exception {
         mockServer.expect(ExpectedCount.once(),
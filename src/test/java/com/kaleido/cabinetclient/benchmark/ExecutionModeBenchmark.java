@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.benchmark;
+
+import com.kaleido.cabinetclient.CabinetClientProperties;
+import com.kaleido.cabinetclient.client.AsyncCabinetClient;
+import com.kaleido.cabinetclient.client.CabinetClient;
+import com.kaleido.cabinetclient.client.CabinetExecutors;
+import com.kaleido.cabinetclient.client.CabinetRestTemplate;
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.retry.policy.NeverRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of many concurrent {@code AsyncCabinetClient.find} calls when the client work runs on the
+ * default pool of platform threads against a virtual thread per task. The server is simulated by a request factory
+ * that waits {@code latencyMillis} before answering, so the numbers reflect how many requests can be in flight rather
+ * than network or JSON costs. Each operation is a batch of {@code concurrentRequests} finds.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.kaleido.cabinetclient.benchmark.ExecutionModeBenchmark}. The {@code virtual} mode needs JDK 21+.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ExecutionModeBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String executionMode;
+
+    @Param({"1000"})
+    public int concurrentRequests;
+
+    @Param({"20"})
+    public long latencyMillis;
+
+    private ExecutorService executor;
+    private AsyncCabinetClient<CabinetPlateMap> asyncCabinetClient;
+
+    @Setup
+    public void setUp() {
+        CabinetClientProperties cabinetClientProperties = new CabinetClientProperties();
+        if ("virtual".equals(executionMode)) {
+            executor = CabinetExecutors.newVirtualThreadPerTaskExecutor()
+                    .orElseThrow(() -> new IllegalStateException("Virtual threads need JDK 21 or later"));
+        } else {
+            executor = CabinetExecutors.newPlatformThreadPool(cabinetClientProperties.getExecutorThreads());
+        }
+
+        CabinetRestTemplate cabinetRestTemplate = new CabinetRestTemplate((uri, httpMethod) -> new MockClientHttpRequest(httpMethod, uri) {
+            @Override
+            protected MockClientHttpResponse executeInternal() {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                MockClientHttpResponse response = new MockClientHttpResponse("{\"id\": 1}".getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+                response.getHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+                return response;
+            }
+        });
+        RetryTemplate singleAttemptTemplate = new RetryTemplate();
+        singleAttemptTemplate.setRetryPolicy(new NeverRetryPolicy());
+
+        CabinetClient<CabinetPlateMap> cabinetClient = new CabinetClient<>("http://localhost:8080/api/plate-maps",
+                "http://localhost:8080/api/_search/plate-maps", cabinetRestTemplate, singleAttemptTemplate, CabinetPlateMap.class);
+        asyncCabinetClient = new AsyncCabinetClient<>(cabinetClient, executor, cabinetClientProperties);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Object concurrentFinds() {
+        CompletableFuture<?>[] finds = new CompletableFuture<?>[concurrentRequests];
+        for (int i = 0; i < concurrentRequests; i++) {
+            finds[i] = asyncCabinetClient.find((long) i);
+        }
+        return CompletableFuture.allOf(finds).join();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ExecutionModeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.benchmark;
+
+import com.kaleido.cabinetclient.platemap.CabinetPlateMapData;
+import com.kaleido.cabinetclient.platemap.CabinetPlateMapDictionaryCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares encoding and decoding plate map data at different deflate levels, with and without a preset dictionary
+ * trained on other plate maps, for a single 96 well plate and for three 384 well plates. The encoded size of each
+ * combination is printed before the benchmarks run, to weigh against their times.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.kaleido.cabinetclient.benchmark.PlateMapCodecBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlateMapCodecBenchmark {
+
+    private static final int[] LEVELS = {1, 6, 9};
+
+    @Param({"1", "6", "9"})
+    private int level;
+
+    @Param({"false", "true"})
+    private boolean dictionary;
+
+    @Param({"96", "1152"})
+    private int wells;
+
+    private CabinetPlateMapDictionaryCodec codec;
+    private byte[] json;
+    private String data;
+
+    @Setup
+    public void setUp() throws IOException {
+        codec = new CabinetPlateMapDictionaryCodec(level, dictionary ? trainedDictionary() : null, dictionary);
+        json = json(plateMap(wells, 0));
+        data = codec.encode(json);
+    }
+
+    @Benchmark
+    public String encode() {
+        return codec.encode(json);
+    }
+
+    @Benchmark
+    public long decode() throws IOException {
+        long length = 0;
+        byte[] buffer = new byte[8192];
+        try (InputStream inputStream = codec.openStream(data)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                length += read;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * A plate map of 96 well plates, or 384 well plates for more than 96 wells. The seed varies the components so the
+     * dictionary samples differ from the plate map that is measured.
+     */
+    private static CabinetPlateMapData plateMap(int wells, int seed) {
+        int rows = wells == 96 ? 8 : 16;
+        int columns = wells == 96 ? 12 : 24;
+        CabinetPlateMapData.Builder builder = CabinetPlateMapData.builder();
+        for (int plate = 0; plate < wells / (rows * columns); plate++) {
+            builder.plate(rows, columns);
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    builder.component(plate, row, column, "Bacteroides-" + (row * columns + column + seed) % 37, (row + seed) * 0.25);
+                    builder.component(plate, row, column, "media", 1.0);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static byte[] json(CabinetPlateMapData plateMapData) throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        plateMapData.write(json);
+        return json.toByteArray();
+    }
+
+    private static byte[] trainedDictionary() throws IOException {
+        List<byte[]> samples = new ArrayList<>();
+        for (int seed = 1; seed <= 8; seed++) {
+            samples.add(json(plateMap(seed % 2 == 0 ? 96 : 384, seed)));
+        }
+        return CabinetPlateMapDictionaryCodec.trainDictionary(samples, 16 * 1024);
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        byte[] trained = trainedDictionary();
+        for (int wells : new int[]{96, 1152}) {
+            byte[] json = json(plateMap(wells, 0));
+            for (int level : LEVELS) {
+                System.out.printf("%4d wells, level %d: %7d JSON bytes, %6d encoded, %6d encoded with dictionary%n", wells,
+                        level, json.length, new CabinetPlateMapDictionaryCodec(level, null).encode(json).length(),
+                        new CabinetPlateMapDictionaryCodec(level, trained, true).encode(json).length());
+            }
+        }
+        new Runner(new OptionsBuilder().include(PlateMapCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.benchmark;
+
+import com.kaleido.cabinetclient.client.CabinetClient;
+import com.kaleido.cabinetclient.client.CabinetRestTemplate;
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares building a {@code findByFieldsEqual} query URI the way {@code CabinetClient} used to (a new
+ * {@code DefaultUriBuilderFactory} and a re-parsed endpoint on every call) against the precompiled endpoint template it
+ * uses now. Runs with the GC profiler so {@code gc.alloc.rate.norm} reports the bytes allocated per call.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.kaleido.cabinetclient.benchmark.UriBuildingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UriBuildingBenchmark {
+
+    private static final String ENDPOINT = "http://localhost:8080/api/plate-maps";
+
+    private UriBenchmarkClient cabinetClient;
+    private Map<String, String> fieldValMap;
+
+    @Setup
+    public void setUp() {
+        cabinetClient = new UriBenchmarkClient();
+        fieldValMap = new LinkedHashMap<>();
+        fieldValMap.put("activityName", "G123BBB");
+        fieldValMap.put("status", "DRAFT + REVIEW");
+    }
+
+    @Benchmark
+    public URI parsedPerCall() {
+        DefaultUriBuilderFactory factory = new DefaultUriBuilderFactory();
+        factory.setEncodingMode(DefaultUriBuilderFactory.EncodingMode.VALUES_ONLY);
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(ENDPOINT);
+        fieldValMap.forEach((key, value) -> builder.queryParam(key + ".equals", "{" + key + "}"));
+        builder.queryParam("page", 0).queryParam("size", 20);
+        return factory.uriString(builder.build().toUriString()).build(fieldValMap);
+    }
+
+    @Benchmark
+    public URI precompiledTemplate() {
+        return cabinetClient.findByFieldsEqualUri(fieldValMap, 0, 20);
+    }
+
+    /**
+     * Exposes the protected URI builder of {@code CabinetClient}
+     */
+    private static class UriBenchmarkClient extends CabinetClient<CabinetPlateMap> {
+        UriBenchmarkClient() {
+            super(ENDPOINT, "http://localhost:8080/api/_search/plate-maps", new CabinetRestTemplate(), new RetryTemplate(), CabinetPlateMap.class);
+        }
+
+        @Override
+        public URI findByFieldsEqualUri(Map<String, String> fieldValMap, int pageNumber, int pageSize) {
+            return super.findByFieldsEqualUri(fieldValMap, pageNumber, pageSize);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(UriBuildingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import com.kaleido.cabinetclient.CabinetClientProperties;
+import com.kaleido.cabinetclient.authentication.CabinetUserCredentials;
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+@SpringBootTest(properties = {
+        "Cabinet.client.retryInterval=50",
+        "Cabinet.client.maxRequestAttempts=3"
+})
+@RunWith(SpringRunner.class)
+public class AsyncCabinetClientTest {
+
+    @Autowired
+    CabinetRestTemplate cabinetRestTemplate;
+
+    @Autowired
+    CabinetClientProperties cabinetClientProperties;
+
+    @Autowired
+    AsyncCabinetClient<CabinetPlateMap> asyncCabinetPlateMapClient;
+
+    @Autowired
+    CabinetUserCredentials cabinetUserCredentials;
+
+    private MockRestServiceServer server;
+    private static final String FAKE_BEARER_TOKEN = "fake.bearer.token";
+    private static final Instant FAKE_BEARER_NOT_EXPIRED = Instant.now().plus(Duration.ofDays(1L));
+
+    @Before
+    public void setUp() {
+        cabinetUserCredentials.setBearerToken(FAKE_BEARER_TOKEN);
+        cabinetUserCredentials.setBearerExpiry(FAKE_BEARER_NOT_EXPIRED);
+        server = MockRestServiceServer.createServer(cabinetRestTemplate);
+    }
+
+    @After
+    public void tearDown() {
+        server.reset();
+    }
+
+    private String plateMapUri(String path) {
+        return cabinetClientProperties.getBase() + cabinetClientProperties.getCabinetPlateMapEndpoint() + path;
+    }
+
+    @Test
+    public void findById() throws Exception {
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri("/1")))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("{\"id\": 1}", MediaType.APPLICATION_JSON));
+
+        ResponseEntity<CabinetPlateMap> response = asyncCabinetPlateMapClient.find(1L).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Long.valueOf(1L), response.getBody().getId());
+        server.verify();
+    }
+
+    @Test
+    public void findRetryTwice() throws Exception {
+        server.expect(ExpectedCount.twice(), requestTo(plateMapUri("/1")))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri("/1")))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("{\"id\": 1}", MediaType.APPLICATION_JSON));
+
+        ResponseEntity<CabinetPlateMap> response = asyncCabinetPlateMapClient.find(1L).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Long.valueOf(1L), response.getBody().getId());
+        server.verify();
+    }
+
+    @Test
+    public void findShouldNotTryMoreThanThreeTimes() throws Exception {
+        server.expect(ExpectedCount.times(3), requestTo(plateMapUri("/1")))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withStatus(HttpStatus.GATEWAY_TIMEOUT));
+
+        try {
+            asyncCabinetPlateMapClient.find(1L).get(5, TimeUnit.SECONDS);
+            fail("expected the future to complete exceptionally");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CabinetClientHTTPException.CabinetClientGatewayTimeoutException);
+        }
+        server.verify();
+    }
+
+    @Test
+    public void deleteOtherExceptionShouldNotRetry() throws Exception {
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri("/1")))
+                .andExpect(method(HttpMethod.DELETE))
+                .andRespond(withStatus(HttpStatus.INTERNAL_SERVER_ERROR));
+
+        try {
+            asyncCabinetPlateMapClient.delete(1L).get(5, TimeUnit.SECONDS);
+            fail("expected the future to complete exceptionally");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof HttpServerErrorException);
+        }
+        server.verify();
+    }
+}
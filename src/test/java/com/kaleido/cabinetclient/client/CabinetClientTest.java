@@ -15,23 +15,33 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.client.ExpectedCount;
 import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.URI;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static java.lang.Integer.MAX_VALUE;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.*;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
@@ -90,6 +100,230 @@ public class CabinetClientTest {
         server.verify();
     }
 
+    @Test
+    public void findByIdServedFromEntityCache() {
+        String plateMapUri = CabinetClientProperties.getBase() + CabinetClientProperties.getCabinetPlateMapEndpoint() + "/1";
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("{\"id\": 1, \"activityName\": \"G123BBB\"}", MediaType.APPLICATION_JSON));
+
+        CabinetEntityCache<CabinetPlateMap> entityCache = new CabinetEntityCache<>(10, 60000L);
+        CabinetClient.setEntityCache(entityCache);
+        try {
+            assertEquals("G123BBB", CabinetClient.find(1L).getBody().getActivityName());
+            assertEquals("G123BBB", CabinetClient.find(1L).getBody().getActivityName());
+        } finally {
+            CabinetClient.setEntityCache(null);
+        }
+
+        server.verify();
+        assertEquals(1, entityCache.getHitCount());
+        assertEquals(1, entityCache.getMissCount());
+    }
+
+    @Test
+    public void findByNullIdBypassesEntityCache() {
+        String plateMapUri = CabinetClientProperties.getBase() + CabinetClientProperties.getCabinetPlateMapEndpoint() + "/null";
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("{\"activityName\": \"G123BBB\"}", MediaType.APPLICATION_JSON));
+
+        CabinetEntityCache<CabinetPlateMap> entityCache = new CabinetEntityCache<>(10, 60000L);
+        CabinetClient.setEntityCache(entityCache);
+        try {
+            //sent to Cabinet as it is without the cache
+            assertEquals("G123BBB", CabinetClient.find(null).getBody().getActivityName());
+        } finally {
+            CabinetClient.setEntityCache(null);
+        }
+
+        server.verify();
+        assertEquals(0, entityCache.getMissCount());
+        assertEquals(0, entityCache.size());
+    }
+
+    @Test
+    public void saveAndDeleteInvalidateEntityCache() {
+        String plateMapUri = CabinetClientProperties.getBase() + CabinetClientProperties.getCabinetPlateMapEndpoint();
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri + "/1"))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("{\"id\": 1, \"activityName\": \"G123BBB\"}", MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri))
+                .andExpect(method(HttpMethod.PUT))
+                .andRespond(withSuccess("{\"id\": 1, \"activityName\": \"G345CCC\"}", MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri + "/1"))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("{\"id\": 1, \"activityName\": \"G345CCC\"}", MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri + "/1"))
+                .andExpect(method(HttpMethod.DELETE))
+                .andRespond(withSuccess());
+
+        CabinetEntityCache<CabinetPlateMap> entityCache = new CabinetEntityCache<>(10, 60000L);
+        CabinetClient.setEntityCache(entityCache);
+        try {
+            CabinetPlateMap cabinetPlateMap = CabinetClient.find(1L).getBody();
+            cabinetPlateMap.setActivityName("G345CCC");
+            CabinetClient.save(cabinetPlateMap);
+            assertEquals("G345CCC", CabinetClient.find(1L).getBody().getActivityName());
+            CabinetClient.delete(1L);
+            assertEquals(0, entityCache.size());
+        } finally {
+            CabinetClient.setEntityCache(null);
+        }
+
+        server.verify();
+    }
+
+    @Test
+    public void invalidateDuringFetchKeepsResponseOutOfEntityCache() {
+        CabinetEntityCache<CabinetPlateMap> entityCache = new CabinetEntityCache<>(10, 60000L);
+
+        ResponseEntity<CabinetPlateMap> stale = entityCache.get(1L, () -> {
+            //a save of the entity completes while the find is still waiting for its response
+            entityCache.invalidate(1L);
+            return ResponseEntity.ok(new CabinetPlateMap().activityName("G123BBB"));
+        });
+        ResponseEntity<CabinetPlateMap> fresh = entityCache.get(1L,
+                () -> ResponseEntity.ok(new CabinetPlateMap().activityName("G345CCC")));
+
+        assertEquals("G123BBB", stale.getBody().getActivityName());
+        assertEquals("G345CCC", fresh.getBody().getActivityName());
+        assertEquals("G345CCC", entityCache.get(1L, () -> null).getBody().getActivityName());
+    }
+
+    @Test
+    public void findByIdRevalidatedWithETag() {
+        String plateMapUri = CabinetClientProperties.getBase() + CabinetClientProperties.getCabinetPlateMapEndpoint() + "/1";
+        HttpHeaders validators = new HttpHeaders();
+        validators.setETag("\"v1\"");
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("{\"id\": 1, \"activityName\": \"G123BBB\"}", MediaType.APPLICATION_JSON).headers(validators));
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(header(HttpHeaders.IF_NONE_MATCH, "\"v1\""))
+                .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+
+        CabinetConditionalCache conditionalCache = new CabinetConditionalCache(10);
+        CabinetClient.setConditionalCache(conditionalCache);
+        try {
+            CabinetPlateMap first = CabinetClient.find(1L).getBody();
+            ResponseEntity<CabinetPlateMap> second = CabinetClient.find(1L);
+            assertEquals(HttpStatus.OK, second.getStatusCode());
+            assertSame(first, second.getBody());
+        } finally {
+            CabinetClient.setConditionalCache(null);
+        }
+
+        server.verify();
+        assertEquals(1, conditionalCache.getNotModifiedCount());
+    }
+
+    @Test
+    public void findAllRevalidatedWithLastModified() throws JsonProcessingException {
+        String plateMapsUri = CabinetClientProperties.getBase() + CabinetClientProperties.getCabinetPlateMapEndpoint() + "?page=0&size=2";
+        HttpHeaders validators = new HttpHeaders();
+        validators.set(HttpHeaders.LAST_MODIFIED, "Fri, 01 Mar 2019 10:15:30 GMT");
+        server.expect(ExpectedCount.once(), requestTo(plateMapsUri))
+                .andRespond(withSuccess(plateMapsJson(1L, 2L), MediaType.APPLICATION_JSON).headers(validators));
+        server.expect(ExpectedCount.once(), requestTo(plateMapsUri))
+                .andExpect(header(HttpHeaders.IF_MODIFIED_SINCE, "Fri, 01 Mar 2019 10:15:30 GMT"))
+                .andRespond(withStatus(HttpStatus.NOT_MODIFIED));
+        server.expect(ExpectedCount.once(), requestTo(plateMapsUri))
+                .andExpect(header(HttpHeaders.IF_MODIFIED_SINCE, "Fri, 01 Mar 2019 10:15:30 GMT"))
+                .andRespond(withSuccess(plateMapsJson(3L), MediaType.APPLICATION_JSON));
+
+        CabinetClient.setConditionalCache(new CabinetConditionalCache(10));
+        try {
+            assertEquals(2, CabinetClient.findAll(0, 2).getBody().size());
+            assertEquals(2, CabinetClient.findAll(0, 2).getBody().size());
+            assertEquals(Long.valueOf(3L), CabinetClient.findAll(0, 2).getBody().get(0).getId());
+        } finally {
+            CabinetClient.setConditionalCache(null);
+        }
+
+        server.verify();
+    }
+
+    @Test
+    public void concurrentIdenticalFindsShareOneRequest() throws Exception {
+        CabinetRequestCoalescer requestCoalescer = new CabinetRequestCoalescer();
+        server.expect(ExpectedCount.once(),
+                requestTo(CabinetClientProperties.getBase() + CabinetClientProperties.getCabinetPlateMapEndpoint() + "/1"))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(request -> {
+                    //hold the request in flight until the other callers have joined it
+                    long deadline = System.currentTimeMillis() + 5000L;
+                    while (requestCoalescer.getCoalescedCount() < 3 && System.currentTimeMillis() < deadline) {
+                        Thread.yield();
+                    }
+                    return withSuccess("{\"id\": 1}", MediaType.APPLICATION_JSON).createResponse(request);
+                });
+
+        CabinetClient.setRequestCoalescer(requestCoalescer);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<CabinetPlateMap>> finds = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                finds.add(executorService.submit(() -> CabinetClient.find(1L).getBody()));
+            }
+            CabinetPlateMap first = finds.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<CabinetPlateMap> find : finds) {
+                assertSame(first, find.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executorService.shutdownNow();
+            CabinetClient.setRequestCoalescer(null);
+        }
+
+        server.verify();
+        assertEquals(3, requestCoalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void findAllByIdsRequestsIdsInBatches() throws JsonProcessingException {
+        String plateMapsUri = CabinetClientProperties.getBase() + CabinetClientProperties.getCabinetPlateMapEndpoint();
+        server.expect(ExpectedCount.once(), requestTo(plateMapsUri + "?id.in=3%2C1&page=0&size=2"))
+                .andRespond(withSuccess(plateMapsJson(1L, 3L), MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(plateMapsUri + "?id.in=2&page=0&size=1"))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+
+        CabinetClient.setFindBatchSize(2);
+        try {
+            List<CabinetPlateMap> cabinetPlateMaps = CabinetClient.findAllByIds(Arrays.asList(3L, 1L, 3L, 2L)).getBody();
+            assertEquals(Arrays.asList(3L, 1L), cabinetPlateMaps.stream().map(CabinetPlateMap::getId).collect(Collectors.toList()));
+        } finally {
+            CabinetClient.setFindBatchSize(CabinetClient.DEFAULT_FIND_BATCH_SIZE);
+        }
+        server.verify();
+    }
+
+    @Test
+    public void concurrentFindsAreBatched() throws Exception {
+        server.expect(ExpectedCount.once(), requestTo(startsWith(CabinetClientProperties.getBase()
+                + CabinetClientProperties.getCabinetPlateMapEndpoint() + "?id.in=")))
+                .andExpect(request -> assertEquals(new HashSet<>(Arrays.asList("1", "2")),
+                        new HashSet<>(Arrays.asList(UriComponentsBuilder.fromUri(request.getURI()).build()
+                                .getQueryParams().getFirst("id.in").split("%2C")))))
+                .andRespond(withSuccess(plateMapsJson(1L, 2L), MediaType.APPLICATION_JSON));
+
+        CabinetClient.setFindBatchWindow(300L);
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<Long>> finds = new ArrayList<>();
+            for (long id : new long[]{1L, 2L, 1L}) {
+                finds.add(executorService.submit(() -> CabinetClient.find(id).getBody().getId()));
+            }
+            assertEquals(Long.valueOf(1L), finds.get(0).get(4, TimeUnit.SECONDS));
+            assertEquals(Long.valueOf(2L), finds.get(1).get(4, TimeUnit.SECONDS));
+            assertEquals(Long.valueOf(1L), finds.get(2).get(4, TimeUnit.SECONDS));
+        } finally {
+            executorService.shutdownNow();
+            CabinetClient.setFindBatchWindow(0L);
+        }
+        server.verify();
+    }
+
     @Test
     public void findOneByMethod() {
         String methodName = "/label";
@@ -584,6 +818,91 @@ public class CabinetClientTest {
         server.verify();
     }
 
+    @Test
+    public void streamAllFetchesPagesUntilShortPage() throws Exception {
+        server.expect(ExpectedCount.once(),
+                requestTo(CabinetClientProperties.getBase() + CabinetClientProperties.getCabinetPlateMapEndpoint() +
+                        "?page=0&size=2"))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess(plateMapsJson(1L, 2L), MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(),
+                requestTo(CabinetClientProperties.getBase() + CabinetClientProperties.getCabinetPlateMapEndpoint() +
+                        "?page=1&size=2"))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess(plateMapsJson(3L), MediaType.APPLICATION_JSON));
+
+        List<Long> ids = CabinetClient.streamAll(2).map(CabinetPlateMap::getId).collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids);
+        server.verify();
+    }
+
+    @Test
+    public void streamSearchStopsOnEmptyPage() throws Exception {
+        server.expect(ExpectedCount.once(),
+                requestTo(CabinetClientProperties.getBase() + CabinetClientProperties.getSearchPathComponent() + "/"
+                        + "plate-maps?query=foo&page=0&size=1"))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess(plateMapsJson(1L), MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(),
+                requestTo(CabinetClientProperties.getBase() + CabinetClientProperties.getSearchPathComponent() + "/"
+                        + "plate-maps?query=foo&page=1&size=1"))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+
+        assertEquals(1L, CabinetClient.streamSearch("foo", 1).count());
+        server.verify();
+    }
+
+    @Test
+    public void findAllInParallelUsesTotalCountHeader() throws Exception {
+        MockRestServiceServer unorderedServer = MockRestServiceServer.bindTo(cabinetRestTemplate).ignoreExpectOrder(true).build();
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Total-Count", "5");
+        String uri = CabinetClientProperties.getBase() + CabinetClientProperties.getCabinetPlateMapEndpoint();
+
+        unorderedServer.expect(ExpectedCount.once(), requestTo(uri + "?page=0&size=2"))
+                .andRespond(withSuccess(plateMapsJson(1L, 2L), MediaType.APPLICATION_JSON).headers(headers));
+        unorderedServer.expect(ExpectedCount.once(), requestTo(uri + "?page=1&size=2"))
+                .andRespond(withSuccess(plateMapsJson(3L, 4L), MediaType.APPLICATION_JSON).headers(headers));
+        unorderedServer.expect(ExpectedCount.once(), requestTo(uri + "?page=2&size=2"))
+                .andRespond(withSuccess(plateMapsJson(5L), MediaType.APPLICATION_JSON).headers(headers));
+
+        List<Long> ids = CabinetClient.findAllInParallel(2, 2).stream().map(CabinetPlateMap::getId).collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), ids);
+        unorderedServer.verify();
+    }
+
+    @Test
+    public void streamAllInParallelUsesLinkHeader() throws Exception {
+        MockRestServiceServer unorderedServer = MockRestServiceServer.bindTo(cabinetRestTemplate).ignoreExpectOrder(true).build();
+        String uri = CabinetClientProperties.getBase() + CabinetClientProperties.getCabinetPlateMapEndpoint();
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.LINK, "<" + uri + "?page=1&size=2>; rel=\"next\",<" + uri + "?page=1&size=2>; rel=\"last\"," +
+                "<" + uri + "?page=0&size=2>; rel=\"first\"");
+
+        unorderedServer.expect(ExpectedCount.once(), requestTo(uri + "?page=0&size=2"))
+                .andRespond(withSuccess(plateMapsJson(1L, 2L), MediaType.APPLICATION_JSON).headers(headers));
+        unorderedServer.expect(ExpectedCount.once(), requestTo(uri + "?page=1&size=2"))
+                .andRespond(withSuccess(plateMapsJson(3L), MediaType.APPLICATION_JSON).headers(headers));
+
+        Set<Long> ids = CabinetClient.streamAllInParallel(2, 2).map(CabinetPlateMap::getId).collect(Collectors.toSet());
+
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L, 3L)), ids);
+        unorderedServer.verify();
+    }
+
+    private String plateMapsJson(Long... ids) throws JsonProcessingException {
+        List<CabinetPlateMap> cabinetPlateMaps = new ArrayList<>();
+        for (Long id : ids) {
+            CabinetPlateMap cabinetPlateMap = new CabinetPlateMap().activityName("G123BBB");
+            cabinetPlateMap.setId(id);
+            cabinetPlateMaps.add(cabinetPlateMap);
+        }
+        return objectMapper.writeValueAsString(cabinetPlateMaps);
+    }
+
     @Test
     public void save() throws Exception {
         CabinetPlateMap cabinetPlateMap = new CabinetPlateMap().activityName("G123BBB");
@@ -619,6 +938,40 @@ public class CabinetClientTest {
         server.verify();
     }
 
+    @Test
+    public void saveAllInChunksRetriesAndReportsEachChunk() throws Exception {
+        String saveAllUri = CabinetClientProperties.getBase() + CabinetClientProperties.getCabinetPlateMapEndpoint() + "/save-all";
+        List<CabinetPlateMap> cabinetPlateMaps = new ArrayList<>();
+        for (String activityName : new String[]{"G1", "G2", "G3", "G4", "G5"}) {
+            cabinetPlateMaps.add(new CabinetPlateMap().activityName(activityName));
+        }
+
+        server.expect(ExpectedCount.once(), requestTo(saveAllUri))
+                .andExpect(content().json(objectMapper.writeValueAsString(cabinetPlateMaps.subList(0, 2))))
+                .andRespond(withSuccess(plateMapsJson(1L, 2L), MediaType.APPLICATION_JSON));
+        //a bad gateway only retries the chunk that got it
+        server.expect(ExpectedCount.once(), requestTo(saveAllUri))
+                .andExpect(content().json(objectMapper.writeValueAsString(cabinetPlateMaps.subList(2, 4))))
+                .andRespond(withStatus(HttpStatus.BAD_GATEWAY));
+        server.expect(ExpectedCount.once(), requestTo(saveAllUri))
+                .andExpect(content().json(objectMapper.writeValueAsString(cabinetPlateMaps.subList(2, 4))))
+                .andRespond(withSuccess(plateMapsJson(3L, 4L), MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(saveAllUri))
+                .andExpect(content().json(objectMapper.writeValueAsString(cabinetPlateMaps.subList(4, 5))))
+                .andRespond(withStatus(HttpStatus.INTERNAL_SERVER_ERROR));
+
+        CabinetSaveReport<CabinetPlateMap> report = CabinetClient.saveAllInChunks(cabinetPlateMaps, 2, 1);
+        server.verify();
+
+        assertFalse(report.isSuccessful());
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), report.getSaved().stream().map(CabinetPlateMap::getId).collect(Collectors.toList()));
+        assertEquals(1, report.getFailures().size());
+        CabinetSaveReport.Outcome<CabinetPlateMap> failure = report.getFailures().get(0);
+        assertEquals(4, failure.getIndex());
+        assertSame(cabinetPlateMaps.get(4), failure.getEntity());
+        assertTrue(failure.getError() instanceof HttpServerErrorException);
+    }
+
     @Test(expected = HttpClientErrorException.class)
     public void saveAllNoEndpointShouldThrowNotFoundError() throws Exception {
         List<CabinetPlateMap> cabinetPlateMaps = new ArrayList();
@@ -734,6 +1087,31 @@ public class CabinetClientTest {
         server.verify();
     }
 
+    @Test(expected = IllegalStateException.class)
+    public void saveEntityWithoutIdShouldFail() {
+        CabinetClient<Authority> authorityClient = new CabinetClient<>(CabinetClientProperties.getBase() + CabinetClientProperties.getAuthorityEndpoint(),
+                null, cabinetRestTemplate, new RetryTemplate(), Authority.class);
+
+        authorityClient.save(new Authority());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void entityWithUnreadableIdShouldFailOnConstruction() {
+        new CabinetClient<>(CabinetClientProperties.getBase() + "strings", null, cabinetRestTemplate, new RetryTemplate(), StringIdEntity.class);
+    }
+
+    public static class StringIdEntity {
+        private String id;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+    }
+
 
     @Test
     public void delete() {
@@ -927,6 +1305,31 @@ public class CabinetClientTest {
         assertEquals(uriString, uri.toString());
     }
 
+    @Test
+    public void searchUriEncodesReservedCharacters() {
+        String uriString = CabinetClientProperties.getBase() + CabinetClientProperties.getSearchPathComponent()
+                + "/" + CabinetClientProperties.getCabinetPlateMapEndpoint() + "?query=a%26b%3Dc%2Bd%20%C3%A9&page=0&size=15";
+        URI uri = CabinetClient.searchUri("a&b=c+d \u00e9", 0, 15);
+
+        assertEquals(uriString, uri.toString());
+        assertEquals("a&b=c+d \u00e9", uri.getQuery().substring("query=".length(), uri.getQuery().indexOf("&page")));
+    }
+
+    @Test
+    public void findByFieldWithOperatorUriEncodesValues() {
+        String uriString = CabinetClientProperties.getBase() + CabinetClientProperties.getCabinetPlateMapEndpoint() + "?foo.in=1%2C2&page=0&size=" + MAX_VALUE;
+        URI uri = CabinetClient.findByFieldWithOperatorUri("foo", "1,2", "in");
+        assertEquals(uriString, uri.toString());
+    }
+
+    @Test
+    public void uriKeepsQueryAlreadyOnEndpoint() {
+        CabinetClient<CabinetPlateMap> client = new CabinetClient<>("http://localhost:8080/api/plate-maps?tenant=a",
+                "http://localhost:8080/api/_search/plate-maps", cabinetRestTemplate, new RetryTemplate(), CabinetPlateMap.class);
+        assertEquals("http://localhost:8080/api/plate-maps?tenant=a&foo.equals=baa&page=1&size=2",
+                client.findByFieldsEqualUri(Collections.singletonMap("foo", "baa"), 1, 2).toString());
+    }
+
     @Test
     public void getEntityClassName() {
         assertEquals(CabinetPlateMap.class.toString(), CabinetClient.getEntityClassName());
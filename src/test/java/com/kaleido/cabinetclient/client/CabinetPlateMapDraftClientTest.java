@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import com.kaleido.cabinetclient.CabinetClientProperties;
+import com.kaleido.cabinetclient.authentication.CabinetUserCredentials;
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+import com.kaleido.cabinetclient.domain.enumeration.Status;
+import com.kaleido.cabinetclient.platemap.CabinetPlateMapCodec;
+import com.kaleido.cabinetclient.platemap.CabinetPlateMapData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.client.ExpectedCount;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+public class CabinetPlateMapDraftClientTest {
+
+    @Autowired
+    CabinetRestTemplate cabinetRestTemplate;
+
+    @Autowired
+    CabinetClientProperties cabinetClientProperties;
+
+    @Autowired
+    CabinetClient<CabinetPlateMap> cabinetPlateMapClient;
+
+    @Autowired
+    CabinetUserCredentials cabinetUserCredentials;
+
+    private MockRestServiceServer server;
+    private CabinetPlateMapDraftClient draftClient;
+
+    @Before
+    public void setUp() {
+        cabinetUserCredentials.setBearerToken("fake.bearer.token");
+        cabinetUserCredentials.setBearerExpiry(Instant.now().plus(Duration.ofDays(1L)));
+        server = MockRestServiceServer.createServer(cabinetRestTemplate);
+        draftClient = new CabinetPlateMapDraftClient(cabinetPlateMapClient, "delta", 10);
+    }
+
+    @After
+    public void tearDown() {
+        server.reset();
+    }
+
+    private String plateMapUri(String path) {
+        return cabinetClientProperties.getBase() + cabinetClientProperties.getCabinetPlateMapEndpoint() + path;
+    }
+
+    private static CabinetPlateMap draft(String checksum, double concentration) {
+        CabinetPlateMapData.Builder builder = CabinetPlateMapData.builder();
+        builder.plate(8, 12);
+        for (int row = 0; row < 8; row++) {
+            for (int column = 0; column < 12; column++) {
+                builder.component(0, row, column, "glucose", row == 2 && column == 3 ? concentration : 1.0);
+            }
+        }
+        CabinetPlateMap cabinetPlateMap = new CabinetPlateMap().status(Status.DRAFT).checksum(checksum).numPlates(1)
+                .activityName("G123BBB").data(builder.build().encode());
+        cabinetPlateMap.setId(1L);
+        return cabinetPlateMap;
+    }
+
+    private static CabinetPlateMap draft(String checksum, String json) {
+        CabinetPlateMap cabinetPlateMap = new CabinetPlateMap().status(Status.DRAFT).checksum(checksum).numPlates(1)
+                .activityName("G123BBB").data(CabinetPlateMapCodec.encode(json.getBytes(StandardCharsets.UTF_8)));
+        cabinetPlateMap.setId(1L);
+        return cabinetPlateMap;
+    }
+
+    private static String savedDraft(String checksum) {
+        return "{\"id\": 1, \"status\": \"DRAFT\", \"checksum\": \"" + checksum + "\"}";
+    }
+
+    @Test
+    public void secondDraftIsSentAsDelta() {
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri("")))
+                .andExpect(method(HttpMethod.PUT))
+                .andRespond(withSuccess(savedDraft("c1"), MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri("/1/delta")))
+                .andExpect(method(HttpMethod.PUT))
+                .andExpect(jsonPath("$.checksum").value("c1"))
+                .andExpect(jsonPath("$.wells", hasSize(1)))
+                .andExpect(jsonPath("$.wells[0].row").value(2))
+                .andExpect(jsonPath("$.wells[0].column").value(3))
+                .andExpect(jsonPath("$.wells[0].components[0].concentration").value(5.0))
+                .andRespond(withSuccess(savedDraft("c2"), MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri("/1/delta")))
+                .andExpect(method(HttpMethod.PUT))
+                .andExpect(jsonPath("$.checksum").value("c2"))
+                .andRespond(withSuccess(savedDraft("c3"), MediaType.APPLICATION_JSON));
+
+        draftClient.saveDraft(draft(null, 1.0));
+        draftClient.saveDraft(draft("c1", 5.0));
+        assertEquals("c3", draftClient.saveDraft(draft("c2", 6.0)).getBody().getChecksum());
+
+        assertEquals(2, draftClient.getDeltaSaveCount());
+        assertEquals(1, draftClient.getFullSaveCount());
+        server.verify();
+    }
+
+    @Test
+    public void staleChecksumIsSavedInFull() {
+        server.expect(ExpectedCount.twice(), requestTo(plateMapUri("")))
+                .andExpect(method(HttpMethod.PUT))
+                .andRespond(withSuccess(savedDraft("c1"), MediaType.APPLICATION_JSON));
+
+        draftClient.saveDraft(draft(null, 1.0));
+        draftClient.saveDraft(draft("c0", 5.0));
+
+        assertEquals(0, draftClient.getDeltaSaveCount());
+        server.verify();
+    }
+
+    @Test
+    public void rejectedDeltaFallsBackToFullSave() {
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri("")))
+                .andExpect(method(HttpMethod.PUT))
+                .andRespond(withSuccess(savedDraft("c1"), MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri("/1/delta")))
+                .andExpect(method(HttpMethod.PUT))
+                .andRespond(withStatus(HttpStatus.CONFLICT));
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri("")))
+                .andExpect(method(HttpMethod.PUT))
+                .andExpect(jsonPath("$.data").exists())
+                .andRespond(withSuccess(savedDraft("c2"), MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri("/1/delta")))
+                .andExpect(method(HttpMethod.PUT))
+                .andRespond(withSuccess(savedDraft("c3"), MediaType.APPLICATION_JSON));
+
+        draftClient.saveDraft(draft(null, 1.0));
+        assertEquals("c2", draftClient.saveDraft(draft("c1", 5.0)).getBody().getChecksum());
+        draftClient.saveDraft(draft("c2", 6.0));
+
+        assertEquals(1, draftClient.getRejectedDeltaCount());
+        assertTrue(draftClient.isDeltaSavesSupported());
+        server.verify();
+    }
+
+    @Test
+    public void missingDeltaEndpointStopsDeltaSaves() {
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri("")))
+                .andExpect(method(HttpMethod.PUT))
+                .andRespond(withSuccess(savedDraft("c1"), MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri("/1/delta")))
+                .andExpect(method(HttpMethod.PUT))
+                .andRespond(withStatus(HttpStatus.NOT_FOUND));
+        server.expect(ExpectedCount.twice(), requestTo(plateMapUri("")))
+                .andExpect(method(HttpMethod.PUT))
+                .andRespond(withSuccess(savedDraft("c2"), MediaType.APPLICATION_JSON));
+
+        draftClient.saveDraft(draft(null, 1.0));
+        draftClient.saveDraft(draft("c1", 5.0));
+        draftClient.saveDraft(draft("c2", 6.0));
+
+        assertFalse(draftClient.isDeltaSavesSupported());
+        server.verify();
+    }
+
+    @Test
+    public void dataWithoutPlatesIsSavedInFull() {
+        server.expect(ExpectedCount.twice(), requestTo(plateMapUri("")))
+                .andExpect(method(HttpMethod.PUT))
+                .andExpect(jsonPath("$.data").exists())
+                .andRespond(withSuccess(savedDraft("c1"), MediaType.APPLICATION_JSON));
+
+        draftClient.saveDraft(draft(null, "{\"layout\":{\"A1\":[\"glucose\"]}}"));
+        draftClient.saveDraft(draft("c1", "{\"layout\":{\"A1\":[\"glucose\",\"media\"]}}"));
+
+        assertEquals(0, draftClient.getDeltaSaveCount());
+        assertEquals(2, draftClient.getFullSaveCount());
+        server.verify();
+    }
+
+    @Test
+    public void changeOutsideTheWellsIsSavedInFull() {
+        String json = "{\"plates\":[{\"rows\":8,\"columns\":12,\"barcode\":\"%s\",\"wells\":"
+                + "[{\"row\":0,\"column\":0,\"components\":[{\"id\":\"glucose\",\"concentration\":1}]}]}]}";
+        server.expect(ExpectedCount.twice(), requestTo(plateMapUri("")))
+                .andExpect(method(HttpMethod.PUT))
+                .andExpect(jsonPath("$.data").exists())
+                .andRespond(withSuccess(savedDraft("c1"), MediaType.APPLICATION_JSON));
+
+        draftClient.saveDraft(draft(null, String.format(json, "P1")));
+        draftClient.saveDraft(draft("c1", String.format(json, "P2")));
+
+        assertEquals(0, draftClient.getDeltaSaveCount());
+        server.verify();
+    }
+
+    @Test
+    public void draftWithoutExtraKeysIsSentAsDelta() {
+        String json = "{\"plates\":[{\"rows\":8,\"columns\":12,\"wells\":"
+                + "[{\"row\":0,\"column\":0,\"components\":[{\"id\":\"glucose\",\"concentration\":%d}]}]}]}";
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri("")))
+                .andExpect(method(HttpMethod.PUT))
+                .andRespond(withSuccess(savedDraft("c1"), MediaType.APPLICATION_JSON));
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri("/1/delta")))
+                .andExpect(method(HttpMethod.PUT))
+                .andExpect(jsonPath("$.wells", hasSize(1)))
+                .andRespond(withSuccess(savedDraft("c2"), MediaType.APPLICATION_JSON));
+
+        draftClient.saveDraft(draft(null, String.format(json, 1)));
+        draftClient.saveDraft(draft("c1", String.format(json, 2)));
+
+        assertEquals(1, draftClient.getDeltaSaveCount());
+        server.verify();
+    }
+
+    @Test(expected = HttpClientErrorException.class)
+    public void failedFullSaveIsThrown() {
+        server.expect(ExpectedCount.once(), requestTo(plateMapUri("")))
+                .andExpect(method(HttpMethod.PUT))
+                .andRespond(withStatus(HttpStatus.CONFLICT));
+
+        draftClient.saveDraft(draft("c0", 1.0));
+    }
+}
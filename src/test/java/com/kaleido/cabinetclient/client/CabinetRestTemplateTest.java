@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class CabinetRestTemplateTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicReference<HttpHeaders> receivedHeaders = new AtomicReference<>();
+    private final AtomicReference<String> receivedBody = new AtomicReference<>();
+    private volatile boolean gzipResponses = false;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/plate-maps/save-all", exchange -> {
+            HttpHeaders headers = new HttpHeaders();
+            exchange.getRequestHeaders().forEach(headers::put);
+            receivedHeaders.set(headers);
+            InputStream requestBody = "gzip".equals(headers.getFirst(HttpHeaders.CONTENT_ENCODING)) ?
+                    new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody();
+            receivedBody.set(StreamUtils.copyToString(requestBody, StandardCharsets.UTF_8));
+
+            byte[] response = "[{\"id\": 1}, {\"id\": 2}]".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+            if (gzipResponses && "gzip".equals(headers.getFirst(HttpHeaders.ACCEPT_ENCODING))) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+                    gzipOutputStream.write(response);
+                }
+                response = compressed.toByteArray();
+                exchange.getResponseHeaders().add(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort() + "/api/";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private CabinetRestTemplate streamingRestTemplate() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setBufferRequestBody(false);
+        return withHeaderInterceptor(new CabinetRestTemplate(requestFactory));
+    }
+
+    private CabinetRestTemplate compressingRestTemplate(int requestCompressionThreshold) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setBufferRequestBody(false);
+        return withHeaderInterceptor(new CabinetRestTemplate(
+                new CabinetCompressingRequestFactory(requestFactory, true, requestCompressionThreshold, true)));
+    }
+
+    private CabinetRestTemplate withHeaderInterceptor(CabinetRestTemplate cabinetRestTemplate) {
+        cabinetRestTemplate.getInterceptors().add((CabinetHeaderInterceptor) request ->
+                request.getHeaders().add(HttpHeaders.AUTHORIZATION, "Bearer token"));
+        return cabinetRestTemplate;
+    }
+
+    private List<CabinetPlateMap> plateMaps() {
+        List<CabinetPlateMap> cabinetPlateMaps = new ArrayList<>();
+        cabinetPlateMaps.add(new CabinetPlateMap().activityName("G123BBB"));
+        cabinetPlateMaps.add(new CabinetPlateMap().activityName("G345CCC"));
+        return cabinetPlateMaps;
+    }
+
+    @Test
+    public void exchangeStreamingSendsChunkedBody() {
+        ResponseEntity<List<CabinetPlateMap>> response = streamingRestTemplate().exchangeStreaming(baseUrl + "plate-maps/save-all",
+                HttpMethod.POST, plateMaps(), new ParameterizedTypeReference<List<CabinetPlateMap>>() {
+                });
+
+        assertEquals(2, response.getBody().size());
+        assertEquals(Long.valueOf(2L), response.getBody().get(1).getId());
+        assertEquals("chunked", receivedHeaders.get().getFirst(HttpHeaders.TRANSFER_ENCODING));
+        assertNull(receivedHeaders.get().getFirst(HttpHeaders.CONTENT_LENGTH));
+        assertEquals("Bearer token", receivedHeaders.get().getFirst(HttpHeaders.AUTHORIZATION));
+        assertTrue(receivedBody.get().contains("\"activityName\":\"G345CCC\""));
+    }
+
+    @Test
+    public void exchangeStreamingBuffersWhenAnInterceptorNeedsTheBody() {
+        CabinetRestTemplate cabinetRestTemplate = streamingRestTemplate();
+        cabinetRestTemplate.getInterceptors().add((request, body, execution) -> execution.execute(request, body));
+
+        cabinetRestTemplate.exchangeStreaming(baseUrl + "plate-maps/save-all", HttpMethod.POST, plateMaps(),
+                new ParameterizedTypeReference<List<CabinetPlateMap>>() {
+                });
+
+        assertNull(receivedHeaders.get().getFirst(HttpHeaders.TRANSFER_ENCODING));
+        assertNotNull(receivedHeaders.get().getFirst(HttpHeaders.CONTENT_LENGTH));
+        assertEquals("Bearer token", receivedHeaders.get().getFirst(HttpHeaders.AUTHORIZATION));
+    }
+
+    @Test
+    public void gzipResponseIsInflated() {
+        gzipResponses = true;
+
+        ResponseEntity<List<CabinetPlateMap>> response = compressingRestTemplate(2048).exchange(baseUrl + "plate-maps/save-all",
+                HttpMethod.POST, new HttpEntity<>(plateMaps()), new ParameterizedTypeReference<List<CabinetPlateMap>>() {
+                });
+
+        assertEquals("gzip", receivedHeaders.get().getFirst(HttpHeaders.ACCEPT_ENCODING));
+        assertEquals(2, response.getBody().size());
+        assertEquals(Long.valueOf(2L), response.getBody().get(1).getId());
+        assertFalse(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void bodyBelowThresholdIsSentUncompressed() {
+        CabinetRestTemplate cabinetRestTemplate = compressingRestTemplate(2048);
+        //an interceptor that needs the body buffers it, so its size is known
+        cabinetRestTemplate.getInterceptors().add((request, body, execution) -> execution.execute(request, body));
+
+        cabinetRestTemplate.exchangeStreaming(baseUrl + "plate-maps/save-all", HttpMethod.POST, plateMaps(),
+                new ParameterizedTypeReference<List<CabinetPlateMap>>() {
+                });
+
+        assertNull(receivedHeaders.get().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(receivedBody.get().contains("\"activityName\":\"G345CCC\""));
+    }
+
+    @Test
+    public void bodyAboveThresholdIsCompressed() {
+        CabinetRestTemplate cabinetRestTemplate = compressingRestTemplate(64);
+        cabinetRestTemplate.getInterceptors().add((request, body, execution) -> execution.execute(request, body));
+
+        cabinetRestTemplate.exchangeStreaming(baseUrl + "plate-maps/save-all", HttpMethod.POST, plateMaps(),
+                new ParameterizedTypeReference<List<CabinetPlateMap>>() {
+                });
+
+        assertEquals("gzip", receivedHeaders.get().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(receivedBody.get().contains("\"activityName\":\"G345CCC\""));
+    }
+
+    @Test
+    public void streamedBodyIsCompressed() {
+        compressingRestTemplate(2048).exchangeStreaming(baseUrl + "plate-maps/save-all", HttpMethod.POST, plateMaps(),
+                new ParameterizedTypeReference<List<CabinetPlateMap>>() {
+                });
+
+        assertEquals("gzip", receivedHeaders.get().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("chunked", receivedHeaders.get().getFirst(HttpHeaders.TRANSFER_ENCODING));
+        assertTrue(receivedBody.get().contains("\"activityName\":\"G345CCC\""));
+    }
+}
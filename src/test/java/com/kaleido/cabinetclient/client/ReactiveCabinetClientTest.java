@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.client;
+
+import com.kaleido.cabinetclient.CabinetClientProperties;
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class ReactiveCabinetClientTest {
+
+    private static final String ENDPOINT = "http://localhost:8080/api/plate-maps";
+    private static final String SEARCH_ENDPOINT = "http://localhost:8080/api/_search/plate-maps";
+
+    private List<ClientRequest> requests;
+    private LinkedList<ClientResponse> responses;
+    private CabinetRestTemplate cabinetRestTemplate;
+    private CabinetClient<CabinetPlateMap> cabinetClient;
+    private ReactiveCabinetClient<CabinetPlateMap> reactiveCabinetClient;
+
+    @Before
+    public void setUp() {
+        requests = new ArrayList<>();
+        responses = new LinkedList<>();
+
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> Mono.fromSupplier(() -> {
+                    requests.add(request);
+                    return responses.removeFirst();
+                }))
+                .build();
+
+        CabinetClientProperties cabinetClientProperties = new CabinetClientProperties();
+        cabinetClientProperties.setStreamPageSize(2);
+        cabinetClientProperties.setRetryInterval(10L);
+
+        cabinetRestTemplate = new CabinetRestTemplate();
+        cabinetClient = new CabinetClient<>(ENDPOINT, SEARCH_ENDPOINT, cabinetRestTemplate, new RetryTemplate(),
+                CabinetPlateMap.class);
+        reactiveCabinetClient = new ReactiveCabinetClient<>(cabinetClient, webClient, cabinetClientProperties);
+    }
+
+    private static ClientResponse json(String body) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build();
+    }
+
+    @Test
+    public void findAllRequestsPagesUntilShortPage() {
+        responses.add(json("[{\"id\": 1}, {\"id\": 2}]"));
+        responses.add(json("[{\"id\": 3}]"));
+
+        StepVerifier.create(reactiveCabinetClient.findAll().map(CabinetPlateMap::getId))
+                .expectNext(1L, 2L, 3L)
+                .verifyComplete();
+
+        assertEquals(2, requests.size());
+        assertEquals(ENDPOINT + "?page=0&size=2", requests.get(0).url().toString());
+        assertEquals(ENDPOINT + "?page=1&size=2", requests.get(1).url().toString());
+    }
+
+    @Test
+    public void findAllOnlyRequestsPagesThatAreDemanded() {
+        responses.add(json("[{\"id\": 1}, {\"id\": 2}]"));
+        responses.add(json("[{\"id\": 3}, {\"id\": 4}]"));
+
+        StepVerifier.create(reactiveCabinetClient.findAll().map(CabinetPlateMap::getId), 0)
+                .thenRequest(2)
+                .expectNext(1L, 2L)
+                .thenCancel()
+                .verify();
+
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void searchRetriesOnBadGateway() {
+        responses.add(ClientResponse.create(HttpStatus.BAD_GATEWAY).build());
+        responses.add(json("[{\"id\": 1}]"));
+
+        StepVerifier.create(reactiveCabinetClient.search("foo").map(CabinetPlateMap::getId))
+                .expectNext(1L)
+                .verifyComplete();
+
+        assertEquals(2, requests.size());
+        assertEquals(SEARCH_ENDPOINT + "?query=foo&page=0&size=2", requests.get(1).url().toString());
+    }
+
+    @Test
+    public void findShouldNotTryMoreThanThreeTimes() {
+        responses.addAll(Arrays.asList(
+                ClientResponse.create(HttpStatus.GATEWAY_TIMEOUT).build(),
+                ClientResponse.create(HttpStatus.GATEWAY_TIMEOUT).build(),
+                ClientResponse.create(HttpStatus.GATEWAY_TIMEOUT).build()));
+
+        StepVerifier.create(reactiveCabinetClient.find(1L))
+                .verifyError(CabinetClientHTTPException.CabinetClientGatewayTimeoutException.class);
+
+        assertEquals(3, requests.size());
+    }
+
+    @Test
+    public void saveWithoutIdPosts() {
+        responses.add(json("{\"id\": 7}"));
+
+        StepVerifier.create(reactiveCabinetClient.save(new CabinetPlateMap().activityName("G123BBB")).map(CabinetPlateMap::getId))
+                .expectNext(7L)
+                .verifyComplete();
+
+        assertEquals(HttpMethod.POST, requests.get(0).method());
+        assertEquals(ENDPOINT, requests.get(0).url().toString());
+    }
+
+    @Test
+    public void saveInvalidatesTheEntityCacheOfTheBlockingClient() {
+        cabinetClient.setEntityCache(new CabinetEntityCache<>(100, 60_000));
+        MockRestServiceServer server = MockRestServiceServer.bindTo(cabinetRestTemplate).build();
+        server.expect(times(2), requestTo(ENDPOINT + "/7")).andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("{\"id\": 7, \"activityName\": \"G123BBB\"}", MediaType.APPLICATION_JSON));
+        responses.add(json("{\"id\": 7, \"activityName\": \"G456CCC\"}"));
+
+        CabinetPlateMap plateMap = new CabinetPlateMap().activityName("G456CCC");
+        plateMap.setId(7L);
+
+        cabinetClient.find(7L);
+        StepVerifier.create(reactiveCabinetClient.save(plateMap))
+                .expectNextCount(1)
+                .verifyComplete();
+        cabinetClient.find(7L);
+
+        server.verify();
+        assertEquals(HttpMethod.PUT, requests.get(0).method());
+    }
+
+    @Test
+    public void deleteInvalidatesTheEntityCacheOfTheBlockingClient() {
+        cabinetClient.setEntityCache(new CabinetEntityCache<>(100, 60_000));
+        MockRestServiceServer server = MockRestServiceServer.bindTo(cabinetRestTemplate).build();
+        server.expect(times(2), requestTo(ENDPOINT + "/7")).andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("{\"id\": 7}", MediaType.APPLICATION_JSON));
+        responses.add(ClientResponse.create(HttpStatus.OK).build());
+
+        cabinetClient.find(7L);
+        StepVerifier.create(reactiveCabinetClient.delete(7L)).verifyComplete();
+        cabinetClient.find(7L);
+
+        server.verify();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.platemap;
+
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import static com.kaleido.cabinetclient.platemap.CabinetPlateMapCodecTest.gzipBase64;
+import static com.kaleido.cabinetclient.platemap.CabinetPlateMapCodecTest.plateMapJson;
+import static org.junit.Assert.*;
+
+public class CabinetPlateMapBulkDecoderTest {
+
+    @Test
+    public void decodesEveryPlateMap() {
+        List<CabinetPlateMap> plateMaps = new ArrayList<>();
+        for (long id = 0; id < 20; id++) {
+            plateMaps.add(new CabinetPlateMap().data(CabinetPlateMapDataTest.fullPlateMap((int) id % 3 + 1).encode()));
+            plateMaps.get((int) id).setId(id);
+        }
+        plateMaps.add(new CabinetPlateMap());
+
+        try (CabinetPlateMapBulkDecoder decoder = new CabinetPlateMapBulkDecoder(4);
+             Stream<CabinetPlateMapBulkDecoder.Decoded> results = decoder.decode(plateMaps)) {
+            List<CabinetPlateMapBulkDecoder.Decoded> decoded = results.collect(Collectors.toList());
+
+            assertEquals(21, decoded.size());
+            for (CabinetPlateMapBulkDecoder.Decoded result : decoded) {
+                assertTrue(result.isDecoded());
+                Long id = result.getCabinetPlateMap().getId();
+                assertEquals(id == null ? 0 : id % 3 + 1, result.getPlateMapData().getNumPlates());
+            }
+        }
+    }
+
+    @Test
+    public void reportsPlateMapsThatCantBeDecoded() {
+        List<CabinetPlateMap> plateMaps = new ArrayList<>();
+        plateMaps.add(new CabinetPlateMap().data(CabinetPlateMapDataTest.fullPlateMap(1).encode()));
+        plateMaps.add(new CabinetPlateMap().data("bm90IGd6aXA="));
+
+        try (CabinetPlateMapBulkDecoder decoder = new CabinetPlateMapBulkDecoder(0)) {
+            List<CabinetPlateMapBulkDecoder.Decoded> decoded = decoder.decode(plateMaps.stream()).collect(Collectors.toList());
+
+            assertEquals(2, decoded.size());
+            assertEquals(1, decoded.stream().filter(CabinetPlateMapBulkDecoder.Decoded::isDecoded).count());
+            CabinetPlateMapBulkDecoder.Decoded failed = decoded.stream().filter(d -> !d.isDecoded()).findFirst().get();
+            assertSame(plateMaps.get(1), failed.getCabinetPlateMap());
+            assertNull(failed.getPlateMapData());
+            assertTrue(failed.getError() instanceof ZipException);
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void reportsErrorsThrownWhileDecoding() {
+        OutOfMemoryError error = new OutOfMemoryError("Java heap space");
+        CabinetPlateMap tooLarge = new CabinetPlateMap() {
+            @Override
+            public CharSequence getDataContent() {
+                throw error;
+            }
+        };
+
+        try (CabinetPlateMapBulkDecoder decoder = new CabinetPlateMapBulkDecoder(2)) {
+            List<CabinetPlateMapBulkDecoder.Decoded> decoded = decoder.decode(Collections.singletonList(tooLarge))
+                    .collect(Collectors.toList());
+
+            assertEquals(1, decoded.size());
+            assertFalse(decoded.get(0).isDecoded());
+            assertSame(error, decoded.get(0).getError());
+        }
+    }
+
+    @Test
+    public void pooledInflaterReadsConcatenatedMembers() throws IOException {
+        String first = plateMapJson(200);
+        String second = plateMapJson(50);
+        ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+        concatenated.write(Base64.getDecoder().decode(gzipBase64(first)));
+        concatenated.write(Base64.getDecoder().decode(gzipBase64(second)));
+        String data = Base64.getEncoder().encodeToString(concatenated.toByteArray());
+
+        Inflater inflater = new Inflater(true);
+        byte[] buffer = new byte[64];
+        for (int i = 0; i < 2; i++) {
+            try (InputStream inputStream = CabinetPlateMapCodec.openStream(data, inflater, buffer)) {
+                assertEquals(first + second, StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+            }
+        }
+        inflater.end();
+    }
+
+    @Test(expected = ZipException.class)
+    public void pooledInflaterChecksTheCrc() throws IOException {
+        byte[] compressed = Base64.getDecoder().decode(gzipBase64(plateMapJson(96)));
+        compressed[compressed.length - 8] ^= 1;
+        String data = Base64.getEncoder().encodeToString(compressed);
+
+        try (InputStream inputStream = CabinetPlateMapCodec.openStream(data, new Inflater(true), new byte[8192])) {
+            StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+        }
+    }
+}
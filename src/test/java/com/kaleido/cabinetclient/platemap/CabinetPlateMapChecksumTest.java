@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.platemap;
+
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+import com.kaleido.cabinetclient.domain.enumeration.Status;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.junit.Assert.*;
+
+public class CabinetPlateMapChecksumTest {
+
+    private static CabinetPlateMap plateMap() {
+        return new CabinetPlateMap()
+                .status(Status.DRAFT)
+                .lastModified(ZonedDateTime.of(2019, 3, 1, 12, 30, 5, 123000000, ZoneId.of("Europe/London")))
+                .activityName("G123BBB é🧪")
+                .data(CabinetPlateMapDataTest.fullPlateMap(5).encode());
+    }
+
+    private static String expected(CabinetPlateMap cabinetPlateMap, String algorithm) throws Exception {
+        byte[] digest = MessageDigest.getInstance(algorithm)
+                .digest(cabinetPlateMap.prepareStringForChecksum().getBytes(StandardCharsets.UTF_8));
+        return CabinetPlateMapChecksum.toHex(digest);
+    }
+
+    @Test
+    public void checksumMatchesPreparedString() throws Exception {
+        CabinetPlateMap cabinetPlateMap = plateMap();
+
+        assertEquals(expected(cabinetPlateMap, "SHA-256"), cabinetPlateMap.calculateChecksum("SHA-256"));
+        assertEquals(expected(cabinetPlateMap, "MD5"), cabinetPlateMap.calculateChecksum("MD5"));
+    }
+
+    @Test
+    public void checksumMatchesPreparedStringWithMissingFields() throws Exception {
+        CabinetPlateMap cabinetPlateMap = plateMap().activityName(null).data(null);
+
+        assertEquals(expected(cabinetPlateMap, "SHA-256"), cabinetPlateMap.calculateChecksum("SHA-256"));
+    }
+
+    @Test
+    public void surrogatePairSplitAcrossFieldsIsEncodedTogether() throws Exception {
+        CabinetPlateMap cabinetPlateMap = plateMap().activityName("G123BBB\ud83e").data("\uddeaH4sI");
+
+        assertEquals(expected(cabinetPlateMap, "SHA-256"), cabinetPlateMap.calculateChecksum("SHA-256"));
+    }
+
+    @Test
+    public void checksumIsKeptUntilAFieldChanges() throws Exception {
+        CabinetPlateMap cabinetPlateMap = plateMap();
+
+        String checksum = cabinetPlateMap.calculateChecksum("SHA-256");
+        assertSame(checksum, cabinetPlateMap.calculateChecksum("SHA-256"));
+
+        cabinetPlateMap.setData(CabinetPlateMapDataTest.fullPlateMap(1).encode());
+        String changed = cabinetPlateMap.calculateChecksum("SHA-256");
+        assertNotEquals(checksum, changed);
+        assertEquals(expected(cabinetPlateMap, "SHA-256"), changed);
+
+        cabinetPlateMap.setStatus(Status.COMPLETED);
+        assertEquals(expected(cabinetPlateMap, "SHA-256"), cabinetPlateMap.calculateChecksum("SHA-256"));
+    }
+
+    @Test
+    public void fieldChangedDuringCalculationIsNotMissed() throws Exception {
+        CabinetPlateMap cabinetPlateMap = plateMap();
+        String data = cabinetPlateMap.getData();
+        //changes the activity name the first time the digest reads the data, as another thread could
+        cabinetPlateMap.setDataContent(new CharSequence() {
+            private boolean changed;
+
+            @Override
+            public int length() {
+                return data.length();
+            }
+
+            @Override
+            public char charAt(int index) {
+                if (!changed) {
+                    changed = true;
+                    cabinetPlateMap.setActivityName("G345CCC");
+                }
+                return data.charAt(index);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                return data.subSequence(start, end);
+            }
+
+            @Override
+            public String toString() {
+                return data;
+            }
+        });
+
+        String checksum = cabinetPlateMap.calculateChecksum("SHA-256");
+
+        assertEquals(expected(plateMap().activityName("G345CCC"), "SHA-256"), checksum);
+        assertEquals(checksum, cabinetPlateMap.calculateChecksum("SHA-256"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownAlgorithmFails() {
+        plateMap().calculateChecksum("NOT-A-DIGEST");
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.platemap;
+
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class CabinetPlateMapCodecTest {
+
+    static String plateMapJson(int wells) {
+        StringBuilder json = new StringBuilder("{\"plates\":[");
+        for (int well = 0; well < wells; well++) {
+            if (well > 0) {
+                json.append(',');
+            }
+            json.append("{\"row\":").append(well / 12).append(",\"column\":").append(well % 12)
+                    .append(",\"components\":[{\"id\":\"C").append(well % 7).append("\",\"concentration\":0.5}]}");
+        }
+        return json.append("]}").toString();
+    }
+
+    static String gzipBase64(String json) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+            gzipOutputStream.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        return Base64.getEncoder().encodeToString(compressed.toByteArray());
+    }
+
+    @Test
+    public void dataStreamDecodesGzipBase64() throws IOException {
+        String json = plateMapJson(96 * 20);
+        CabinetPlateMap cabinetPlateMap = new CabinetPlateMap().data(gzipBase64(json));
+
+        try (InputStream inputStream = cabinetPlateMap.openDataStream()) {
+            assertEquals(json, StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void dataChannelDecodesGzipBase64() throws IOException {
+        String json = plateMapJson(384);
+        CabinetPlateMap cabinetPlateMap = new CabinetPlateMap().data(gzipBase64(json));
+
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        try (ReadableByteChannel channel = cabinetPlateMap.openDataChannel()) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                decoded.write(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+        }
+        assertEquals(json, new String(decoded.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void lineWrappedDataIsDecoded() throws IOException {
+        String json = plateMapJson(96);
+        byte[] compressed = Base64.getDecoder().decode(gzipBase64(json));
+        String wrapped = Base64.getMimeEncoder().encodeToString(compressed);
+
+        assertTrue(wrapped.contains("\r\n"));
+        assertEquals(json, StreamUtils.copyToString(CabinetPlateMapCodec.openStream(wrapped), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void encodeRoundTrips() throws IOException {
+        String json = plateMapJson(96);
+        String encoded = CabinetPlateMapCodec.encode(json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(json, StreamUtils.copyToString(CabinetPlateMapCodec.openStream(encoded), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void missingDataIsEmpty() throws IOException {
+        assertEquals(-1, new CabinetPlateMap().openDataStream().read());
+    }
+
+    @Test
+    public void malformedDataFailsOnRead() {
+        InputStream inputStream = new CabinetPlateMap().data("bm90IGd6aXA=").openDataStream();
+        try {
+            inputStream.read();
+            fail("Expected the data not to be gzip");
+        } catch (IOException e) {
+            //expected, and only on read
+        }
+    }
+}
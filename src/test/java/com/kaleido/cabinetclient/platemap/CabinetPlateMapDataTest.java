@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.platemap;
+
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CabinetPlateMapDataTest {
+
+    private static final String JSON = "{\"name\": \"ignored\", \"plates\": [" +
+            "{\"rows\": 8, \"columns\": 12, \"barcode\": \"P1\", \"wells\": [" +
+            "{\"row\": 0, \"column\": 1, \"components\": [{\"id\": \"glucose\", \"concentration\": 0.5}, {\"id\": \"water\"}]}," +
+            "{\"components\": [{\"id\": \"glucose\", \"concentration\": 2.0, \"unit\": \"mM\"}], \"row\": 7, \"column\": 11}]}," +
+            "{\"wells\": [{\"row\": 1, \"column\": 0, \"components\": [{\"id\": \"fructose\", \"concentration\": 1}]}], \"rows\": 16, \"columns\": 24}]}";
+
+    /**
+     * A plate map of {@code numPlates} 384 well plates with every well holding two components
+     */
+    static CabinetPlateMapData fullPlateMap(int numPlates) {
+        CabinetPlateMapData.Builder builder = CabinetPlateMapData.builder();
+        for (int plate = 0; plate < numPlates; plate++) {
+            builder.plate(16, 24);
+            for (int row = 0; row < 16; row++) {
+                for (int column = 0; column < 24; column++) {
+                    builder.component(plate, row, column, "C" + (row * 24 + column) % 40, row + column / 10.0);
+                    builder.component(plate, row, column, "media", 1.0);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void decodesWellsFromData() {
+        CabinetPlateMap cabinetPlateMap = new CabinetPlateMap()
+                .data(CabinetPlateMapCodec.encode(JSON.getBytes(StandardCharsets.UTF_8)));
+
+        CabinetPlateMapData plateMapData = CabinetPlateMapData.decode(cabinetPlateMap);
+
+        assertEquals(2, plateMapData.getNumPlates());
+        assertEquals(96 + 384, plateMapData.getNumWells());
+        assertEquals(4, plateMapData.getNumComponents());
+        assertEquals(3, plateMapData.getComponentIds().size());
+
+        int well = plateMapData.wellIndex(0, 0, 1);
+        assertEquals(2, plateMapData.getComponentCount(well));
+        assertEquals("glucose", plateMapData.getComponentId(well, 0));
+        assertEquals(0.5, plateMapData.getConcentration(well, 0), 0.0);
+        assertTrue(Double.isNaN(plateMapData.getConcentration(well, "water")));
+        assertEquals(2.0, plateMapData.getConcentration(plateMapData.wellIndex(0, 7, 11), "glucose"), 0.0);
+        assertEquals(1.0, plateMapData.getConcentration(plateMapData.wellIndex(1, 1, 0), "fructose"), 0.0);
+        assertEquals(0, plateMapData.getComponentCount(plateMapData.wellIndex(1, 15, 23)));
+    }
+
+    @Test
+    public void forEachComponentVisitsInWellOrder() throws IOException {
+        CabinetPlateMapData plateMapData = CabinetPlateMapData.read(new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8)));
+
+        List<String> visited = new ArrayList<>();
+        plateMapData.forEachComponent((plate, row, column, componentId, concentration) ->
+                visited.add(plate + ":" + row + ":" + column + ":" + componentId));
+
+        assertEquals(4, visited.size());
+        assertEquals("0:0:1:glucose", visited.get(0));
+        assertEquals("0:0:1:water", visited.get(1));
+        assertEquals("0:7:11:glucose", visited.get(2));
+        assertEquals("1:1:0:fructose", visited.get(3));
+    }
+
+    @Test
+    public void encodeRoundTrips() {
+        CabinetPlateMapData plateMapData = fullPlateMap(3);
+
+        CabinetPlateMapData decoded = CabinetPlateMapData.decode(new CabinetPlateMap().data(plateMapData.encode()));
+
+        assertEquals(3, decoded.getNumPlates());
+        assertEquals(plateMapData.getNumComponents(), decoded.getNumComponents());
+        assertEquals(plateMapData.getComponentIds(), decoded.getComponentIds());
+        int well = decoded.wellIndex(2, 15, 23);
+        assertEquals("C23", decoded.getComponentId(well, 0));
+        assertEquals(17.3, decoded.getConcentration(well, 0), 1e-9);
+        assertEquals(1.0, decoded.getConcentration(well, "media"), 0.0);
+    }
+
+    @Test
+    public void missingDataHasNoPlates() {
+        assertEquals(0, CabinetPlateMapData.decode(new CabinetPlateMap()).getNumPlates());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void wellOutsidePlateFails() {
+        fullPlateMap(1).wellIndex(0, 16, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void componentOutsidePlateFails() {
+        CabinetPlateMapData.Builder builder = CabinetPlateMapData.builder();
+        builder.plate(8, 12);
+        builder.component(0, 8, 0, "glucose", 1.0).build();
+    }
+
+    @Test(expected = IOException.class)
+    public void dataThatIsNotAPlateMapFails() throws IOException {
+        CabinetPlateMapData.read(new ByteArrayInputStream("[1, 2]".getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.platemap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CabinetPlateMapDeltaTest {
+
+    private static CabinetPlateMapData plateMap(int numPlates, String componentId, double concentration) {
+        CabinetPlateMapData.Builder builder = CabinetPlateMapData.builder();
+        for (int plate = 0; plate < numPlates; plate++) {
+            builder.plate(8, 12);
+        }
+        builder.component(0, 0, 0, "glucose", 1.0);
+        builder.component(0, 4, 5, componentId, concentration);
+        builder.component(numPlates - 1, 7, 11, "water", Double.NaN);
+        return builder.build();
+    }
+
+    @Test
+    public void unchangedPlateMapHasEmptyDelta() {
+        assertTrue(CabinetPlateMapDelta.diff(plateMap(2, "glucose", 2.0), plateMap(2, "glucose", 2.0)).isEmpty());
+    }
+
+    @Test
+    public void deltaHoldsOnlyChangedWells() {
+        CabinetPlateMapData base = plateMap(2, "glucose", 2.0);
+        CabinetPlateMapData updated = plateMap(2, "fructose", 2.0);
+
+        CabinetPlateMapDelta delta = CabinetPlateMapDelta.diff(base, updated);
+
+        assertEquals(1, delta.getWells().size());
+        CabinetPlateMapDelta.Well well = delta.getWells().get(0);
+        assertEquals(0, well.getPlate());
+        assertEquals(4, well.getRow());
+        assertEquals(5, well.getColumn());
+        assertEquals("fructose", well.getComponents().get(0).getId());
+    }
+
+    @Test
+    public void applyingTheDeltaGivesTheUpdatedPlateMap() {
+        CabinetPlateMapData base = plateMap(2, "glucose", 2.0);
+        CabinetPlateMapData.Builder builder = CabinetPlateMapData.builder();
+        builder.plate(8, 12);
+        builder.plate(8, 12);
+        builder.component(0, 0, 0, "glucose", 1.0);
+        builder.component(1, 3, 3, "fructose", 0.25);
+        builder.component(1, 7, 11, "water", 3.0);
+        CabinetPlateMapData updated = builder.build();
+
+        CabinetPlateMapData applied = CabinetPlateMapDelta.diff(base, updated).apply(base);
+
+        assertEquals(3, CabinetPlateMapDelta.diff(base, updated).getWells().size());
+        assertTrue(CabinetPlateMapDelta.diff(updated, applied).isEmpty());
+        assertEquals(updated.getNumComponents(), applied.getNumComponents());
+    }
+
+    @Test
+    public void changedPlatesHaveNoDelta() {
+        assertNull(CabinetPlateMapDelta.diff(plateMap(2, "glucose", 2.0), plateMap(3, "glucose", 2.0)));
+    }
+}
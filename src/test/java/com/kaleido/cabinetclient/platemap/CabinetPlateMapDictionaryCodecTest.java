@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.platemap;
+
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+import static com.kaleido.cabinetclient.platemap.CabinetPlateMapCodecTest.gzipBase64;
+import static com.kaleido.cabinetclient.platemap.CabinetPlateMapCodecTest.plateMapJson;
+import static org.junit.Assert.*;
+
+public class CabinetPlateMapDictionaryCodecTest {
+
+    private static List<CabinetPlateMap> samples() {
+        List<CabinetPlateMap> samples = new ArrayList<>();
+        for (int numPlates = 1; numPlates <= 3; numPlates++) {
+            samples.add(new CabinetPlateMap().data(CabinetPlateMapDataTest.fullPlateMap(numPlates).encode()));
+        }
+        return samples;
+    }
+
+    @Test
+    public void readsPlainGzipBase64() throws IOException {
+        String json = plateMapJson(384);
+        byte[] dictionary = CabinetPlateMapDictionaryCodec.trainDictionary(samples(), 4096);
+        CabinetPlateMapDictionaryCodec codec = new CabinetPlateMapDictionaryCodec(Deflater.BEST_SPEED, dictionary);
+
+        try (InputStream inputStream = codec.openStream(gzipBase64(json))) {
+            assertEquals(json, StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void writesPlainGzipBase64WithoutADictionary() throws IOException {
+        String json = plateMapJson(384);
+        CabinetPlateMapDictionaryCodec codec = new CabinetPlateMapDictionaryCodec(Deflater.BEST_COMPRESSION, null);
+
+        String data = codec.encode(json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(json, StreamUtils.copyToString(CabinetPlateMapCodec.openStream(data), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void dictionaryMakesSmallPlateMapsSmaller() {
+        byte[] dictionary = CabinetPlateMapDictionaryCodec.trainDictionary(samples(), 8192);
+        assertTrue(dictionary.length > 0);
+        assertTrue(dictionary.length <= 8192);
+
+        CabinetPlateMapData plateMapData = CabinetPlateMapDataTest.fullPlateMap(1);
+        CabinetPlateMapDictionaryCodec plain = new CabinetPlateMapDictionaryCodec(Deflater.DEFAULT_COMPRESSION, null);
+        CabinetPlateMapDictionaryCodec withDictionary = new CabinetPlateMapDictionaryCodec(Deflater.DEFAULT_COMPRESSION, dictionary, true);
+        String data = withDictionary.encode(plateMapData);
+
+        assertTrue(data.length() < plain.encode(plateMapData).length());
+        CabinetPlateMapData decoded = withDictionary.decode(new CabinetPlateMap().data(data));
+        assertEquals(plateMapData.getNumComponents(), decoded.getNumComponents());
+        assertEquals(plateMapData.getComponentIds(), decoded.getComponentIds());
+    }
+
+    @Test
+    public void dictionaryIsOnlyWrittenWhenEnabled() {
+        byte[] dictionary = CabinetPlateMapDictionaryCodec.trainDictionary(samples(), 4096);
+        CabinetPlateMapDictionaryCodec codec = new CabinetPlateMapDictionaryCodec(6, dictionary);
+        CabinetPlateMap cabinetPlateMap = new CabinetPlateMap().data(codec.encode(CabinetPlateMapDataTest.fullPlateMap(1)));
+
+        assertFalse(codec.isDictionaryWritesEnabled());
+        assertEquals(1, CabinetPlateMapData.decode(cabinetPlateMap).getNumPlates());
+    }
+
+    @Test(expected = ZipException.class)
+    public void dataWrittenWithAnotherDictionaryIsRejected() throws IOException {
+        byte[] dictionary = CabinetPlateMapDictionaryCodec.trainDictionary(samples(), 4096);
+        String data = new CabinetPlateMapDictionaryCodec(6, dictionary, true).encode(plateMapJson(96).getBytes(StandardCharsets.UTF_8));
+
+        try (InputStream inputStream = new CabinetPlateMapDictionaryCodec(6, "other".getBytes(StandardCharsets.US_ASCII)).openStream(data)) {
+            StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void levelMustBeADeflateLevel() {
+        new CabinetPlateMapDictionaryCodec(10, null);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2019. Kaleido Biosciences. All Rights Reserved
+ */
+
+package com.kaleido.cabinetclient.platemap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kaleido.cabinetclient.domain.CabinetPlateMap;
+import com.kaleido.cabinetclient.domain.enumeration.Status;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+
+import static org.junit.Assert.*;
+
+public class CabinetPlateMapSpillTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ObjectMapper objectMapper;
+    private String data;
+
+    @Before
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .modulesToInstall(CabinetPlateMapSpill.module(1024, temporaryFolder.getRoot().toPath())).build();
+        data = CabinetPlateMapDataTest.fullPlateMap(4).encode();
+    }
+
+    private String json(String data) {
+        return "{\"id\": 1, \"activityName\": \"G123BBB\", \"data\": \"" + data + "\", \"numPlates\": 4}";
+    }
+
+    @Test
+    public void largeDataIsSpilled() throws Exception {
+        CabinetPlateMap cabinetPlateMap = objectMapper.readValue(json(data), CabinetPlateMap.class);
+
+        assertTrue(cabinetPlateMap.getDataContent() instanceof CabinetPlateMapSpill);
+        assertEquals(data, cabinetPlateMap.getData());
+        assertEquals("G123BBB", cabinetPlateMap.getActivityName());
+        assertEquals(4, CabinetPlateMapData.decode(cabinetPlateMap).getNumPlates());
+        //the file is gone once it is mapped
+        assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void otherObjectMappersDontSpill() throws Exception {
+        CabinetPlateMap cabinetPlateMap = Jackson2ObjectMapperBuilder.json().build().readValue(json(data), CabinetPlateMap.class);
+
+        assertTrue(cabinetPlateMap.getDataContent() instanceof String);
+        assertEquals(data, cabinetPlateMap.getData());
+    }
+
+    @Test
+    public void smallDataIsKeptAsString() throws Exception {
+        CabinetPlateMap cabinetPlateMap = objectMapper.readValue(json("H4sIAAAAAAAAAKtWSs7PS8ssSk0pBgDNJKl5DwAAAA=="), CabinetPlateMap.class);
+
+        assertTrue(cabinetPlateMap.getDataContent() instanceof String);
+    }
+
+    @Test
+    public void spilledDataIsDecodedAndSerialized() throws Exception {
+        CabinetPlateMap cabinetPlateMap = objectMapper.readValue(json(data), CabinetPlateMap.class);
+
+        String expected = StreamUtils.copyToString(CabinetPlateMapCodec.openStream(data), StandardCharsets.UTF_8);
+        assertEquals(expected, StreamUtils.copyToString(cabinetPlateMap.openDataStream(), StandardCharsets.UTF_8));
+
+        CabinetPlateMap roundTripped = objectMapper.readValue(objectMapper.writeValueAsString(cabinetPlateMap), CabinetPlateMap.class);
+        assertEquals(data, roundTripped.getData());
+        assertFalse(objectMapper.writeValueAsString(cabinetPlateMap).contains("dataContent"));
+    }
+
+    @Test
+    public void checksumOfSpilledDataMatches() throws Exception {
+        CabinetPlateMap spilled = objectMapper.readValue(json(data), CabinetPlateMap.class);
+        CabinetPlateMap onHeap = new CabinetPlateMap().activityName("G123BBB").data(data);
+        spilled.status(Status.DRAFT)
+                .lastModified(ZonedDateTime.parse("2019-03-01T12:00:00Z"));
+        onHeap.status(spilled.getStatus()).lastModified(spilled.getLastModified());
+
+        assertEquals(onHeap.calculateChecksum("SHA-256"), spilled.calculateChecksum("SHA-256"));
+    }
+
+    @Test
+    public void javaSerializationCopiesSpilledData() throws Exception {
+        CabinetPlateMap cabinetPlateMap = objectMapper.readValue(json(data), CabinetPlateMap.class);
+
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(serialized)) {
+            objectOutputStream.writeObject(cabinetPlateMap);
+        }
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(serialized.toByteArray()))) {
+            CabinetPlateMap deserialized = (CabinetPlateMap) objectInputStream.readObject();
+            assertEquals(data, deserialized.getData());
+        }
+    }
+}